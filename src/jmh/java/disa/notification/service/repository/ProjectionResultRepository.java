@@ -0,0 +1,29 @@
+package disa.notification.service.repository;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import disa.notification.service.entity.ViralLoaderEntity;
+import disa.notification.service.service.interfaces.LabResults;
+
+/**
+ * The results query as it was read before {@link ReportResultRepository}, a
+ * Spring Data native query returning a projection proxy per row. Only used by
+ * {@link ReportResultMappingBenchmark}.
+ */
+public interface ProjectionResultRepository extends Repository<ViralLoaderEntity, Integer> {
+
+    String REPORT_RESULTS_QUERY = "SELECT RequestId as requestId, UNIQUEID as nid, FIRSTNAME as firstName, SURNAME as lastName,RequestingProvinceName, RequestingDistrictName as requestingDistrictName,RequestingFacilityName as requestingFacilityName," +
+            "RequestingFacilityCode as healthFacilityLabCode,CREATED_AT createdAt,UPDATED_AT updatedAt, VIRAL_LOAD_STATUS as viralLoadStatus, NOT_PROCESSING_CAUSE as notProcessingCause, TypeOfResult AS typeOfResult " +
+            " from VlData where  RequestingFacilityCode in (:ouCodes) AND ENTITY_STATUS='ACTIVE' AND (CREATED_AT BETWEEN :startDateTime AND :endDateTime " +
+            " OR (VIRAL_LOAD_STATUS='PENDING' AND CREATED_AT < :pendingCutoff))";
+
+    @Query(value = REPORT_RESULTS_QUERY, nativeQuery = true)
+    Stream<LabResults> streamReportResults(@Param("startDateTime") LocalDateTime startDateTime, @Param("endDateTime") LocalDateTime endDateTime,
+            @Param("pendingCutoff") LocalDateTime pendingCutoff, @Param("ouCodes") Set<String> orgUnitCodes);
+}
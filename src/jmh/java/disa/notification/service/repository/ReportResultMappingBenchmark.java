@@ -0,0 +1,139 @@
+package disa.notification.service.repository;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import disa.notification.service.Application;
+import disa.notification.service.load.VlDataGenerator;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.utils.DateTimeUtils;
+
+/**
+ * Reads the results of a report from H2 and every field of each row, through
+ * the Spring Data projection proxies and through the JDBC row callback of
+ * {@link ReportResultRepository}. Both read the same rows, so the difference is
+ * the cost of mapping them, compare the gc.alloc.rate.norm of both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ReportResultMappingBenchmark {
+
+    private static final int ORG_UNITS = 100;
+    private static final LocalDateTime WEEK_END = LocalDateTime.of(2024, 3, 9, 23, 59, 59);
+    private static final LocalDateTime WEEK_START = WEEK_END.minusWeeks(1).plusSeconds(1);
+
+    @Param({ "10000", "100000" })
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private ProjectionResultRepository projectionResultRepository;
+    private ReportResultRepository reportResultRepository;
+    private Set<String> orgUnitCodes;
+    private LocalDateTime pendingCutoff;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties("task.cron=-",
+                        "spring.datasource.url=jdbc:h2:mem:mapping;MODE=MySQL",
+                        "spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl",
+                        "app.report.indexAdvisor.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        VlDataGenerator generator = new VlDataGenerator(jdbcTemplate, 42);
+        generator.prepareSchema();
+        generator.generate(1, ORG_UNITS, 1, rows / ORG_UNITS, WEEK_END);
+        orgUnitCodes = new HashSet<>(jdbcTemplate.queryForList("SELECT code FROM OrgUnit", String.class));
+
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        projectionResultRepository = context.getBean(ProjectionResultRepository.class);
+        reportResultRepository = context.getBean(ReportResultRepository.class);
+        pendingCutoff = DateTimeUtils.getPendingCutoff(2);
+
+        long projectedRows = transactionTemplate.execute(status -> {
+            try (Stream<LabResults> results = projectionResultRepository.streamReportResults(WEEK_START, WEEK_END,
+                    pendingCutoff, orgUnitCodes)) {
+                return results.count();
+            }
+        });
+        long mappedRows = transactionTemplate.execute(status -> reportResultRepository
+                .forEachReportResult(WEEK_START, WEEK_END, pendingCutoff, orgUnitCodes, result -> {
+                }));
+        if (projectedRows != mappedRows) {
+            throw new IllegalStateException("Projection read " + projectedRows + " rows, the row callback "
+                    + mappedRows);
+        }
+        System.out.printf("%nReading %d rows per operation%n", mappedRows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void projection(Blackhole blackhole) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<LabResults> results = projectionResultRepository.streamReportResults(WEEK_START, WEEK_END,
+                    pendingCutoff, orgUnitCodes)) {
+                results.forEach(result -> consume(blackhole, result));
+            }
+        });
+    }
+
+    @Benchmark
+    public void rowCallback(Blackhole blackhole) {
+        transactionTemplate.executeWithoutResult(status -> reportResultRepository.forEachReportResult(WEEK_START,
+                WEEK_END, pendingCutoff, orgUnitCodes, result -> consume(blackhole, result)));
+    }
+
+    /**
+     * Every field is read once, as the report does.
+     */
+    private static void consume(Blackhole blackhole, LabResults result) {
+        blackhole.consume(result.getNID());
+        blackhole.consume(result.getRequestId());
+        blackhole.consume(result.getFirstName());
+        blackhole.consume(result.getLastName());
+        blackhole.consume(result.getHealthFacilityLabCode());
+        blackhole.consume(result.getTypeOfResult());
+        blackhole.consume(result.getRequestingFacilityName());
+        blackhole.consume(result.getViralLoadStatus());
+        blackhole.consume(result.getNotProcessingCause());
+        blackhole.consume(result.getCreatedAt());
+        blackhole.consume(result.getRequestingProvinceName());
+        blackhole.consume(result.getRequestingDistrictName());
+        blackhole.consume(result.getUpdatedAt());
+    }
+}
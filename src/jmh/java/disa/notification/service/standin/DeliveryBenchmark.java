@@ -0,0 +1,135 @@
+package disa.notification.service.standin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.service.SeafileServiceException;
+import disa.notification.service.standin.StandInServer.Conditions;
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.FileReportOutput;
+
+/**
+ * Uploads a report and notifies its implementing partner through
+ * MailServiceImpl, against the Seafile and notifier stand-ins. Each thread is a
+ * worker of the upload and notify stages, the number of threads is changed with
+ * -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(4)
+public class DeliveryBenchmark {
+
+    private static final DateInterval INTERVAL = DateInterval.of(LocalDateTime.of(2024, 3, 3, 0, 0),
+            LocalDateTime.of(2024, 3, 9, 23, 59, 59));
+
+    /** Round trip time of the link, in milliseconds. */
+    @Param({ "20", "150" })
+    private int latencyMs;
+
+    /** Upload bandwidth of the link, 0 is unlimited. */
+    @Param({ "0", "1048576" })
+    private long bandwidthBytesPerSecond;
+
+    /** Fraction of the requests answered with a 500. */
+    @Param({ "0", "0.05" })
+    private double errorRate;
+
+    @Param({ "1", "4" })
+    private int maxConnectionsPerHost;
+
+    @Param({ "262144" })
+    private int reportBytes;
+
+    private final AtomicInteger partners = new AtomicInteger();
+
+    private Path directory;
+    private SeafileStandIn seafile;
+    private NotifierStandIn notifier;
+    private DeliveryFixture delivery;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("DeliveryBenchmark");
+        Conditions conditions = Conditions.local().latency(latencyMs, latencyMs / 10)
+                .bandwidth(bandwidthBytesPerSecond).errors(errorRate, 500);
+        seafile = new SeafileStandIn(conditions);
+        seafile.start();
+        notifier = new NotifierStandIn(conditions);
+        notifier.start();
+        delivery = new DeliveryFixture(seafile, notifier, maxConnectionsPerHost, directory.resolve("outbox"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.printf("%nSeafile: %d requests, %d logins, %d connections, %d injected errors. "
+                + "Notifier: %d requests, %d connections. Emails left in the outbox: %d%n", seafile.getRequests(),
+                seafile.getLogins(), seafile.getConnections(), seafile.getInjectedErrors(), notifier.getRequests(),
+                notifier.getConnections(), delivery.getNotificationOutbox().getPendingCount());
+        delivery.close();
+        seafile.close();
+        notifier.close();
+    }
+
+    @Benchmark
+    public void uploadAndNotify(Counters counters) throws Exception {
+        // Each delivery is for another partner, so the outbox keys differ
+        ImplementingPartner ip = partner(partners.incrementAndGet());
+        FileReportOutput report = new FileReportOutput(directory.resolve(ip.getId() + ".xlsx"));
+        Files.write(report.getPath(), new byte[reportBytes]);
+        try {
+            delivery.getMailService().uploadReport(ip, report);
+        } catch (SeafileServiceException e) {
+            counters.failedUploads++;
+            report.delete();
+            return;
+        }
+        // Deletes the report, a failed email stays in the outbox
+        delivery.getMailService().sendReportEmail(ip, INTERVAL, report);
+    }
+
+    private static ImplementingPartner partner(int id) {
+        ImplementingPartner ip = new ImplementingPartner();
+        ip.setId(id);
+        ip.setOrgName("PARTNER" + id);
+        ip.setRepoId("repo" + id % 10);
+        ip.setRepoLink("https://seafile.example.org/repo" + id % 10);
+        ip.setMailList("partner" + id + "@example.org");
+        return ip;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long failedUploads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            failedUploads = 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package disa.notification.service.utils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.LabResults;
+
+/**
+ * Keeps the results of a batch run in memory, as a list of the rows read or in
+ * {@link ColumnarLabResults}, and reads every column the NID sheets show. The
+ * heap retained by the results is printed when they are loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ColumnarLabResultsBenchmark {
+
+    private static final String[] FIRST_NAMES = { "Maria", "Ana", "Joana", "Rosa", "Amelia", "Fatima", "Joao",
+            "Antonio", "Manuel", "Jose", "Carlos", "Alberto", "Celeste", "Ines", "Luisa", "Paulo" };
+    private static final String[] LAST_NAMES = { "Langa", "Macamo", "Sitoe", "Cossa", "Mondlane", "Nhantumbo",
+            "Chissano", "Tembe", "Mabunda", "Muianga", "Matsinhe", "Bila", "Manhica", "Zandamela" };
+
+    @Param({ "list", "columnar" })
+    private String store;
+
+    @Param({ "1000000" })
+    private int rows;
+
+    private List<LabResults> list;
+    private ColumnarLabResults columnar;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeap();
+        List<LabResults> results = readResults();
+        if ("list".equals(store)) {
+            list = results;
+        } else {
+            columnar = new ColumnarLabResults();
+            for (LabResults result : results) {
+                columnar.add(result, true, ViralLoadStatus.PENDING.name().equals(result.getViralLoadStatus()));
+            }
+            results = null;
+        }
+        System.out.printf("%nHeap retained by %d results in %s: %.1f MB%n", rows, store,
+                (usedHeap() - before) / (1024.0 * 1024.0));
+    }
+
+    @Benchmark
+    public void readNidSheetColumns(Blackhole blackhole) {
+        Consumer<LabResults> consumer = result -> {
+            blackhole.consume(result.getRequestId());
+            blackhole.consume(result.getTypeOfResult());
+            blackhole.consume(result.getNID());
+            blackhole.consume(result.getRequestingProvinceName());
+            blackhole.consume(result.getRequestingDistrictName());
+            blackhole.consume(result.getHealthFacilityLabCode());
+            blackhole.consume(result.getRequestingFacilityName());
+            blackhole.consume(result.getCreatedAt());
+            blackhole.consume(result.getUpdatedAt());
+            blackhole.consume(result.getViralLoadStatusValue());
+            blackhole.consume(result.getNotProcessingCauseValue());
+        };
+        if (list != null) {
+            list.forEach(consumer);
+        } else {
+            columnar.forEachReceived(consumer);
+        }
+    }
+
+    /**
+     * The generated results share their strings, the rows read from the
+     * database have a copy of each string.
+     */
+    private List<LabResults> readResults() {
+        List<LabResults> results = new ArrayList<>(rows);
+        int i = 0;
+        for (LabResults result : new LabResultGenerator().labResults(rows)) {
+            results.add(LabResultsImpl.builder()
+                    .requestId(copy(result.getRequestId()))
+                    .nID(copy(result.getNID()))
+                    .firstName(copy(FIRST_NAMES[i % FIRST_NAMES.length]))
+                    .lastName(copy(LAST_NAMES[i++ % LAST_NAMES.length]))
+                    .typeOfResult(copy(result.getTypeOfResult()))
+                    .requestingProvinceName(copy(result.getRequestingProvinceName()))
+                    .requestingDistrictName(copy(result.getRequestingDistrictName()))
+                    .healthFacilityLabCode(copy(result.getHealthFacilityLabCode()))
+                    .requestingFacilityName(copy(result.getRequestingFacilityName()))
+                    .viralLoadStatus(copy(result.getViralLoadStatus()))
+                    .notProcessingCause(copy(result.getNotProcessingCause()))
+                    .createdAt(copy(result.getCreatedAt()))
+                    .updatedAt(copy(result.getUpdatedAt()))
+                    .build());
+        }
+        return results;
+    }
+
+    private static String copy(String value) {
+        return value != null ? new String(value.toCharArray()) : null;
+    }
+
+    private static LocalDateTime copy(LocalDateTime value) {
+        return LocalDateTime.of(value.toLocalDate(), value.toLocalTime());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
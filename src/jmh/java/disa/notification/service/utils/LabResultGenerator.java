@@ -0,0 +1,210 @@
+package disa.notification.service.utils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Generates report datasets with the cardinality of the country, 11 provinces
+ * with 15 districts each and 10 health facilities per district. The same seed
+ * always generates the same rows. The results and result summaries are the
+ * test implementations of the projections.
+ */
+public class LabResultGenerator {
+
+    public static final int PROVINCES = 11;
+    public static final int DISTRICTS_PER_PROVINCE = 15;
+    public static final int FACILITIES_PER_DISTRICT = 10;
+
+    public static final LocalDateTime START = LocalDateTime.of(2024, 3, 3, 0, 0);
+    public static final LocalDateTime END = LocalDateTime.of(2024, 3, 9, 23, 59, 59);
+
+    // Viral load results are the large majority
+    private static final String[] TYPES_OF_RESULT = { "HIVVL", "HIVVL", "HIVVL", "HIVVL", "HIVVL", "HIVVL",
+            "HIVVL", "HIVVL", "CD4", "TBLAM" };
+
+    private static final long SEED = 42;
+
+    private final Random random;
+    private final Facility[] facilities;
+
+    public LabResultGenerator() {
+        this(SEED);
+    }
+
+    public LabResultGenerator(long seed) {
+        random = new Random(seed);
+        facilities = new Facility[PROVINCES * DISTRICTS_PER_PROVINCE * FACILITIES_PER_DISTRICT];
+        int index = 0;
+        for (int p = 0; p < PROVINCES; p++) {
+            String province = "Provincia " + (p + 1);
+            for (int d = 0; d < DISTRICTS_PER_PROVINCE; d++) {
+                String district = province + " Distrito " + (d + 1);
+                for (int f = 0; f < FACILITIES_PER_DISTRICT; f++) {
+                    String code = String.format("1%02d%02d%02d", p + 1, d + 1, f + 1);
+                    facilities[index++] = new Facility(province, district, code, "Centro de Saude " + code);
+                }
+            }
+        }
+    }
+
+    public static DateInterval getDateInterval() {
+        return DateInterval.of(START, END);
+    }
+
+    /**
+     * 75% of the results are processed, 15% pending and 10% not processed.
+     */
+    public List<LabResults> labResults(int rows) {
+        List<LabResults> results = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Facility facility = randomFacility();
+            int status = random.nextInt(100);
+            String viralLoadStatus;
+            String notProcessingCause = null;
+            if (status < 75) {
+                viralLoadStatus = ViralLoadStatus.PROCESSED.name();
+            } else if (status < 90) {
+                viralLoadStatus = ViralLoadStatus.PENDING.name();
+            } else {
+                viralLoadStatus = ViralLoadStatus.NOT_PROCESSED.name();
+                notProcessingCause = NotProcessingCause.values()[random.nextInt(NotProcessingCause.values().length)]
+                        .name();
+            }
+            LocalDateTime createdAt = START.plusSeconds(random.nextInt(7 * 24 * 3600));
+            results.add(LabResultsImpl.builder()
+                    .requestId("REQ" + i)
+                    .nID(facility.code + "/2024/" + String.format("%05d", i % 100000))
+                    .typeOfResult(randomTypeOfResult())
+                    .requestingProvinceName(facility.province)
+                    .requestingDistrictName(facility.district)
+                    .healthFacilityLabCode(facility.code)
+                    .requestingFacilityName(facility.name)
+                    .viralLoadStatus(viralLoadStatus)
+                    .notProcessingCause(notProcessingCause)
+                    .createdAt(createdAt)
+                    .updatedAt(createdAt.plusHours(random.nextInt(48)))
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * One summary per health facility and type of result, rows beyond the number
+     * of health facilities repeat them.
+     */
+    public List<LabResultSummary> resultSummaries(int rows) {
+        List<LabResultSummary> summaries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Facility facility = facilities[i % facilities.length];
+            int processed = random.nextInt(200);
+            int pending = random.nextInt(30);
+            int invalid = random.nextInt(5);
+            int nidNotFound = random.nextInt(10);
+            int duplicateNid = random.nextInt(3);
+            int duplicatedRequestId = random.nextInt(3);
+            summaries.add(VlResultSummaryImpl.builder()
+                    .requestingProvinceName(facility.province)
+                    .requestingDistrictName(facility.district)
+                    .healthFacilityLabCode(facility.code)
+                    .facilityName(facility.name)
+                    .typeOfResult(TYPES_OF_RESULT[(i / facilities.length) % TYPES_OF_RESULT.length])
+                    .processed(processed)
+                    .totalPending(pending)
+                    .notProcessedInvalidResult(invalid)
+                    .notProcessedNidNotFount(nidNotFound)
+                    .notProcessedDuplicateNid(duplicateNid)
+                    .notProcessedDuplicatedRequestId(duplicatedRequestId)
+                    .totalReceived(processed + pending + invalid + nidNotFound + duplicateNid + duplicatedRequestId)
+                    .build());
+        }
+        return summaries;
+    }
+
+    public List<PendingHealthFacilitySummary> pendingSummaries(int rows) {
+        List<PendingHealthFacilitySummary> summaries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Facility facility = facilities[i % facilities.length];
+            summaries.add(GeneratedPendingSummary.builder()
+                    .requestingProvinceName(facility.province)
+                    .requestingDistrictName(facility.district)
+                    .healthFacilityLabCode(facility.code)
+                    .facilityName(facility.name)
+                    .totalPending(1 + random.nextInt(50))
+                    .lastSyncDate(END.minusHours(random.nextInt(24 * 30)))
+                    .build());
+        }
+        return summaries;
+    }
+
+    /**
+     * Every result is received in the report interval and the pending ones are
+     * listed as pending too, as the report query does for results older than the
+     * pending cutoff.
+     */
+    public InMemoryLabResultDataset dataset(int rows) {
+        InMemoryLabResultDataset dataset = new InMemoryLabResultDataset();
+        for (LabResults result : labResults(rows)) {
+            dataset.add(result, true, ViralLoadStatus.PENDING.name().equals(result.getViralLoadStatus()));
+        }
+        for (Facility facility : facilities) {
+            dataset.addLastSync(GeneratedLastSync.builder()
+                    .requestingDistrictName(facility.district)
+                    .healthFacilityLabCode(facility.code)
+                    .lastSyncDate(END.minusHours(random.nextInt(24 * 30)))
+                    .build());
+        }
+        return dataset;
+    }
+
+    private Facility randomFacility() {
+        return facilities[random.nextInt(facilities.length)];
+    }
+
+    private String randomTypeOfResult() {
+        return TYPES_OF_RESULT[random.nextInt(TYPES_OF_RESULT.length)];
+    }
+
+    private static class Facility {
+        private final String province;
+        private final String district;
+        private final String code;
+        private final String name;
+
+        Facility(String province, String district, String code, String name) {
+            this.province = province;
+            this.district = district;
+            this.code = code;
+            this.name = name;
+        }
+    }
+
+    @Builder
+    @Getter
+    private static class GeneratedPendingSummary implements PendingHealthFacilitySummary {
+        private String requestingProvinceName;
+        private String requestingDistrictName;
+        private String healthFacilityLabCode;
+        private String facilityName;
+        private int totalPending;
+        private LocalDateTime lastSyncDate;
+    }
+
+    @Builder
+    @Getter
+    private static class GeneratedLastSync implements HealthFacilityLastSync {
+        private String requestingDistrictName;
+        private String healthFacilityLabCode;
+        private LocalDateTime lastSyncDate;
+    }
+}
@@ -0,0 +1,65 @@
+package disa.notification.service.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+/**
+ * Generates the whole report, from the results in memory to the XLSX file on
+ * disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SyncReportBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    private InMemoryLabResultDataset dataset;
+    private SyncReport syncReport;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = new LabResultGenerator().dataset(rows);
+        syncReport = new SyncReport(messageSource(), LabResultGenerator.getDateInterval());
+        file = Files.createTempFile("SyncReportBenchmark", ".xlsx");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long writeViralResultXLS() throws IOException {
+        syncReport.writeViralResultXLS(dataset, new FileReportOutput(file));
+        return Files.size(file);
+    }
+
+    static ResourceBundleMessageSource messageSource() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        return messageSource;
+    }
+}
@@ -0,0 +1,97 @@
+package disa.notification.service.utils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
+
+/**
+ * Composes each sheet of the report on its own, on a new workbook for every
+ * invocation. The workbook is not written, so the time of each sheet excludes
+ * compressing the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SyncReportSheetBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    private InMemoryLabResultDataset dataset;
+    private List<LabResultSummary> resultSummaries;
+    private List<PendingHealthFacilitySummary> pendingSummaries;
+    private SyncReport syncReport;
+
+    private XSSFWorkbook template;
+    private SXSSFWorkbook workbook;
+    private SyncReport.SheetWriters writers;
+
+    @Setup
+    public void setUp() {
+        LabResultGenerator generator = new LabResultGenerator();
+        dataset = generator.dataset(rows);
+        resultSummaries = generator.resultSummaries(rows);
+        pendingSummaries = generator.pendingSummaries(rows);
+        syncReport = new SyncReport(SyncReportBenchmark.messageSource(), LabResultGenerator.getDateInterval());
+    }
+
+    @Setup(Level.Invocation)
+    public void newWorkbook() throws IOException {
+        template = SyncReport.getTemplate().newWorkbook();
+        workbook = new SXSSFWorkbook(template, SyncReport.ROW_ACCESS_WINDOW_SIZE);
+        workbook.setCompressTempFiles(true);
+        writers = syncReport.new SheetWriters(workbook);
+    }
+
+    @TearDown(Level.Invocation)
+    public void disposeWorkbook() throws IOException {
+        workbook.dispose();
+        template.close();
+    }
+
+    @Benchmark
+    public SXSSFWorkbook composeNIDSheets() {
+        syncReport.composeNIDSheets(dataset, workbook, writers);
+        return workbook;
+    }
+
+    @Benchmark
+    public SXSSFWorkbook composeReceivedByDistrictSheet() {
+        syncReport.composeReceivedByDistrictSheet(resultSummaries, workbook, writers);
+        return workbook;
+    }
+
+    @Benchmark
+    public SXSSFWorkbook composeReceivedByUSSheet() {
+        syncReport.composeReceivedByUSSheet(resultSummaries, workbook, writers);
+        return workbook;
+    }
+
+    @Benchmark
+    public SXSSFWorkbook composePendingByUSSheet() {
+        syncReport.composePendingByUSSheet(pendingSummaries, workbook, writers);
+        return workbook;
+    }
+}
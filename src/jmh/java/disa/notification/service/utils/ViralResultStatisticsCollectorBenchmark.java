@@ -0,0 +1,54 @@
+package disa.notification.service.utils;
+
+import static java.util.stream.Collectors.groupingBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import disa.notification.service.entity.ViralResultStatistics;
+import disa.notification.service.service.interfaces.LabResultSummary;
+
+/**
+ * Groups the result summaries by province, district and type of result as the
+ * received by district sheet does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ViralResultStatisticsCollectorBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    private int rows;
+
+    private List<LabResultSummary> summaries;
+
+    @Setup
+    public void setUp() {
+        summaries = new LabResultGenerator().resultSummaries(rows);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Map<String, ViralResultStatistics>>> toVlResultStatistics() {
+        return summaries.stream()
+                .collect(groupingBy(LabResultSummary::getRequestingProvinceName,
+                        groupingBy(LabResultSummary::getRequestingDistrictName,
+                                groupingBy(LabResultSummary::getTypeOfResult,
+                                        ViralResultStatisticsCollector.toVlResultStatistics()))));
+    }
+}
@@ -0,0 +1,56 @@
+package disa.notification.service.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class HttpClientConfig {
+
+	/**
+	 * Client shared by every outbound call, to the notifier and to Seafile.
+	 * Connections are pooled and kept alive between calls, so the TCP and TLS
+	 * handshakes are not repeated for each partner.
+	 */
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient httpClient(@Value("${app.http.maxConnections:20}") int maxConnections,
+			@Value("${app.http.maxConnectionsPerHost:10}") int maxConnectionsPerHost,
+			@Value("${app.http.keepAliveMs:30000}") long keepAliveMs,
+			@Value("${app.http.connectTimeoutMs:5000}") int connectTimeoutMs,
+			@Value("${app.http.readTimeoutMs:60000}") int readTimeoutMs) {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(keepAliveMs,
+				TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+		connectionManager.setValidateAfterInactivity(2000);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMs)
+				.setConnectionRequestTimeout(connectTimeoutMs)
+				.setSocketTimeout(readTimeoutMs)
+				.build();
+
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy((response, context) -> keepAliveMs)
+				.evictExpiredConnections()
+				.evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+				// Connections are not bound to a user, so any of them can be reused
+				.disableConnectionState()
+				.build();
+	}
+
+	@Bean
+	public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+		return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+	}
+}
@@ -0,0 +1,76 @@
+package disa.notification.service.config;
+
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+@Configuration
+public class ReportExecutorConfig {
+
+	/**
+	 * Executor that generates the reports of the implementing partners
+	 * concurrently. Each report keeps a database connection while its results are
+	 * streamed, so the number of workers never exceeds the connections left in the
+	 * datasource pool.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor reportTaskExecutor(DataSource dataSource,
+			@Value("${app.report.workers:4}") int workers,
+			@Value("${app.report.queueCapacity:100}") int queueCapacity) {
+		int poolSize = Math.max(1, Math.min(workers, getMaximumPoolSize(dataSource) - 1));
+		log.info("Report workers: {}, queue capacity: {}", poolSize, queueCapacity);
+		return createExecutor("report-", poolSize, queueCapacity);
+	}
+
+	/**
+	 * Executor that uploads the generated reports, so the report workers can move
+	 * on to the next implementing partner while a report is uploaded.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor uploadTaskExecutor(@Value("${app.report.upload.workers:2}") int workers,
+			@Value("${app.report.upload.queueCapacity:10}") int queueCapacity) {
+		log.info("Upload workers: {}, queue capacity: {}", workers, queueCapacity);
+		return createExecutor("upload-", workers, queueCapacity);
+	}
+
+	/**
+	 * Executor that sends the emails of the uploaded reports.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor notifyTaskExecutor(@Value("${app.report.notify.workers:1}") int workers,
+			@Value("${app.report.notify.queueCapacity:50}") int queueCapacity) {
+		log.info("Notify workers: {}, queue capacity: {}", workers, queueCapacity);
+		return createExecutor("notify-", workers, queueCapacity);
+	}
+
+	/**
+	 * When the queue is full the thread handing over the work runs it itself, which
+	 * slows down the stage before.
+	 */
+	private ThreadPoolTaskExecutor createExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix(threadNamePrefix);
+		executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+		return executor;
+	}
+
+	private int getMaximumPoolSize(DataSource dataSource) {
+		if (dataSource instanceof HikariDataSource) {
+			return ((HikariDataSource) dataSource).getMaximumPoolSize();
+		}
+		return Integer.MAX_VALUE;
+	}
+}
@@ -2,4 +2,23 @@ package disa.notification.service.enums;
 
 public enum NotProcessingCause {
 	NID_NOT_FOUND, INVALID_RESULT, DUPLICATE_NID, DUPLICATED_REQUEST_ID;
+
+	private static final NotProcessingCause[] VALUES = values();
+
+	/**
+	 * @return the cause named by the value, ignoring surrounding spaces, null when
+	 *         there is none
+	 */
+	public static NotProcessingCause parse(String value) {
+		if (value == null) {
+			return null;
+		}
+		String name = value.trim();
+		for (NotProcessingCause cause : VALUES) {
+			if (cause.name().equals(name)) {
+				return cause;
+			}
+		}
+		return null;
+	}
 }
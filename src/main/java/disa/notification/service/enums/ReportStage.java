@@ -0,0 +1,8 @@
+package disa.notification.service.enums;
+
+/**
+ * The stages of the delivery of a report, in order.
+ */
+public enum ReportStage {
+	GENERATED, UPLOADED, NOTIFIED
+}
@@ -5,5 +5,23 @@ package disa.notification.service.enums;
  *
  */
 public enum ViralLoadStatus {
-	PENDING, PROCESSED, NOT_PROCESSED
+	PENDING, PROCESSED, NOT_PROCESSED;
+
+	// values() copies the array on each call
+	private static final ViralLoadStatus[] VALUES = values();
+
+	/**
+	 * @return the status named by the value, null when there is none
+	 */
+	public static ViralLoadStatus parse(String value) {
+		if (value == null) {
+			return null;
+		}
+		for (ViralLoadStatus status : VALUES) {
+			if (status.name().equals(value)) {
+				return status;
+			}
+		}
+		return null;
+	}
 }
@@ -0,0 +1,24 @@
+package disa.notification.service.model;
+
+import lombok.Data;
+
+/**
+ * An email waiting in the notification outbox, stored as a JSON file until the
+ * notifier accepts it.
+ */
+@Data
+public class OutboxEntry {
+
+	/**
+	 * Identifies the email of an implementing partner for a report interval, sent
+	 * to the notifier so a retried delivery can be recognised.
+	 */
+	private String idempotencyKey;
+	// Name of the implementing partner, the metrics of the notifier are tagged with it
+	private String partner;
+	private String attachmentName;
+	private EmailDTO email;
+	private int attempts;
+	private long createdAt;
+	private long nextAttemptAt;
+}
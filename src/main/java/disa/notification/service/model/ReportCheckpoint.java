@@ -0,0 +1,26 @@
+package disa.notification.service.model;
+
+import disa.notification.service.enums.ReportStage;
+import lombok.Data;
+
+/**
+ * The last stage finished for the report of an implementing partner and report
+ * interval.
+ */
+@Data
+public class ReportCheckpoint {
+
+	private Integer implementingPartnerId;
+	private String startDateTime;
+	private String endDateTime;
+	private ReportStage stage;
+	/**
+	 * The generated report, null when there were no results.
+	 */
+	private String reportPath;
+	private long updatedAt;
+
+	public boolean isFinished(ReportStage stage) {
+		return this.stage != null && this.stage.compareTo(stage) >= 0;
+	}
+}
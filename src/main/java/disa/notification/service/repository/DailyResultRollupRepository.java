@@ -0,0 +1,351 @@
+package disa.notification.service.repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import disa.notification.service.entity.ViralResultStatistics;
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.utils.DateInterval;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Daily counters of the results of each health facility and type of result,
+ * owned by this service and kept up to date from the UPDATED_AT of VlData. Only
+ * the days touched since the last refresh are recomputed. The tables are
+ * created by {@link #SCRIPT}.
+ */
+@Log4j2
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.rollup.enabled", havingValue = "true")
+public class DailyResultRollupRepository {
+
+    /**
+     * Creates the tables, it is not run by the service.
+     */
+    public static final String SCRIPT = "db/daily-rollups.sql";
+
+    private static final String CHECK_TABLES = "SELECT COUNT(*) FROM VlDataDailyRollup, VlDataRollupWatermark WHERE 1 = 0";
+
+    private static final String SELECT_WATERMARK = "SELECT Watermark FROM VlDataRollupWatermark WHERE Id = 1";
+
+    private static final String INSERT_WATERMARK = "INSERT INTO VlDataRollupWatermark (Id, Watermark) VALUES (1, :watermark)";
+
+    private static final String UPDATE_WATERMARK = "UPDATE VlDataRollupWatermark SET Watermark = :watermark WHERE Id = 1";
+
+    /**
+     * MAX of a single indexed column is read from the end of its index, see
+     * {@link #SCRIPT}.
+     */
+    private static final String SELECT_LATEST_UPDATE = "SELECT MAX(UPDATED_AT) FROM VlData";
+
+    private static final String SELECT_LATEST_CREATION = "SELECT MAX(CREATED_AT) FROM VlData";
+
+    private static final String SELECT_FIRST_CREATION = "SELECT MIN(CREATED_AT) FROM VlData";
+
+    /**
+     * A range of the UPDATED_AT index and one of the CREATED_AT index, an OR of
+     * both columns would scan the table.
+     */
+    private static final String SELECT_CHANGED_DAYS = "SELECT CAST(CREATED_AT AS DATE) AS rollupDate, RequestingFacilityCode "
+            + "FROM VlData WHERE RequestingFacilityCode IS NOT NULL AND UPDATED_AT > :since "
+            + "UNION SELECT CAST(CREATED_AT AS DATE) AS rollupDate, RequestingFacilityCode "
+            + "FROM VlData WHERE RequestingFacilityCode IS NOT NULL AND CREATED_AT > :since";
+
+    private static final String DELETE_RANGE_ROLLUPS = "DELETE FROM VlDataDailyRollup WHERE RollupDate BETWEEN :startDate AND :endDate";
+
+    private static final String INSERT_RANGE_ROLLUPS = "INSERT INTO VlDataDailyRollup (RollupDate, RequestingFacilityCode, TypeOfResult, "
+            + "RequestingProvinceName, RequestingDistrictName, RequestingFacilityName, Total, Processed, Pending, "
+            + "NotProcessedInvalidResult, NotProcessedNidNotFound, NotProcessedDuplicateNid, NotProcessedDuplicatedRequestId) "
+            + "SELECT CAST(CREATED_AT AS DATE), RequestingFacilityCode, COALESCE(TypeOfResult, ''), MAX(RequestingProvinceName), "
+            + "MAX(RequestingDistrictName), MAX(RequestingFacilityName), COUNT(*), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'PROCESSED' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'PENDING' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'INVALID_RESULT' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'NID_NOT_FOUND' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'DUPLICATE_NID' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'DUPLICATED_REQUEST_ID' THEN 1 ELSE 0 END) "
+            + "FROM VlData WHERE RequestingFacilityCode IS NOT NULL AND CREATED_AT >= :startDateTime AND CREATED_AT < :endDateTime "
+            + "AND ENTITY_STATUS = 'ACTIVE' GROUP BY CAST(CREATED_AT AS DATE), RequestingFacilityCode, COALESCE(TypeOfResult, '')";
+
+    private static final String DELETE_ROLLUPS = "DELETE FROM VlDataDailyRollup WHERE RollupDate = :day AND RequestingFacilityCode IN (:ouCodes)";
+
+    private static final String INSERT_ROLLUPS = "INSERT INTO VlDataDailyRollup (RollupDate, RequestingFacilityCode, TypeOfResult, "
+            + "RequestingProvinceName, RequestingDistrictName, RequestingFacilityName, Total, Processed, Pending, "
+            + "NotProcessedInvalidResult, NotProcessedNidNotFound, NotProcessedDuplicateNid, NotProcessedDuplicatedRequestId) "
+            + "SELECT :day, RequestingFacilityCode, COALESCE(TypeOfResult, ''), MAX(RequestingProvinceName), "
+            + "MAX(RequestingDistrictName), MAX(RequestingFacilityName), COUNT(*), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'PROCESSED' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'PENDING' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'INVALID_RESULT' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'NID_NOT_FOUND' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'DUPLICATE_NID' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN VIRAL_LOAD_STATUS = 'NOT_PROCESSED' AND NOT_PROCESSING_CAUSE = 'DUPLICATED_REQUEST_ID' THEN 1 ELSE 0 END) "
+            + "FROM VlData WHERE RequestingFacilityCode IN (:ouCodes) AND CREATED_AT >= :dayStart AND CREATED_AT < :nextDayStart "
+            + "AND ENTITY_STATUS = 'ACTIVE' GROUP BY RequestingFacilityCode, COALESCE(TypeOfResult, '')";
+
+    private static final String SELECT_ROLLUPS = "SELECT RequestingProvinceName, RequestingDistrictName, RequestingFacilityName, "
+            + "RequestingFacilityCode, TypeOfResult, Total, Processed, Pending, NotProcessedInvalidResult, NotProcessedNidNotFound, "
+            + "NotProcessedDuplicateNid, NotProcessedDuplicatedRequestId FROM VlDataDailyRollup "
+            + "WHERE RequestingFacilityCode IN (:ouCodes) AND RollupDate BETWEEN :startDate AND :endDate";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Changes committed out of order are still picked up when their UPDATED_AT
+     * is less than this many minutes older than the watermark.
+     */
+    @Value("${app.rollup.overlapMinutes:10}")
+    private int overlapMinutes;
+
+    /**
+     * Days recomputed in each transaction of the first refresh.
+     */
+    @Value("${app.rollup.backfillDays:7}")
+    private int backfillDays;
+
+    /**
+     * Fails the startup when the tables of {@link #SCRIPT} were not created.
+     */
+    @PostConstruct
+    public void checkTables() {
+        try {
+            jdbcTemplate.getJdbcTemplate().queryForObject(CHECK_TABLES, Integer.class);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("The daily rollup tables are missing, run classpath:" + SCRIPT
+                    + " before enabling app.rollup.enabled", e);
+        }
+    }
+
+    /**
+     * Recomputes the daily rollups of every day and health facility with results
+     * created or updated since the last refresh, each day in its own transaction.
+     * The first refresh backfills every day in ranges of
+     * {@code app.rollup.backfillDays}. The watermark only moves once every day is
+     * recomputed, a failed refresh is retried from the same watermark.
+     */
+    public synchronized void refresh() {
+        long startTime = System.currentTimeMillis();
+        List<Timestamp> watermarks = jdbcTemplate.queryForList(SELECT_WATERMARK, new HashMap<>(), Timestamp.class);
+        LocalDateTime watermark = watermarks.isEmpty() || watermarks.get(0) == null ? null
+                : watermarks.get(0).toLocalDateTime();
+        LocalDateTime newWatermark = findLatestChange();
+        if (newWatermark == null) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int days = watermark == null ? backfill(transactionTemplate, newWatermark)
+                : recomputeChangedDays(transactionTemplate, watermark.minusMinutes(overlapMinutes));
+
+        Map<String, Object> watermarkParams = new HashMap<>();
+        watermarkParams.put("watermark", Timestamp.valueOf(newWatermark));
+        if (watermarks.isEmpty()) {
+            jdbcTemplate.update(INSERT_WATERMARK, watermarkParams);
+        } else {
+            jdbcTemplate.update(UPDATE_WATERMARK, watermarkParams);
+        }
+        log.info("Daily rollups of {} days refreshed up to {} in {} ms", days, newWatermark,
+                System.currentTimeMillis() - startTime);
+    }
+
+    private LocalDateTime findLatestChange() {
+        LocalDateTime updatedAt = findTime(SELECT_LATEST_UPDATE);
+        LocalDateTime createdAt = findTime(SELECT_LATEST_CREATION);
+        if (updatedAt == null || (createdAt != null && createdAt.isAfter(updatedAt))) {
+            return createdAt;
+        }
+        return updatedAt;
+    }
+
+    private LocalDateTime findTime(String query) {
+        Timestamp time = jdbcTemplate.getJdbcTemplate().queryForObject(query, Timestamp.class);
+        return time != null ? time.toLocalDateTime() : null;
+    }
+
+    private int backfill(TransactionTemplate transactionTemplate, LocalDateTime until) {
+        LocalDateTime first = findTime(SELECT_FIRST_CREATION);
+        if (first == null) {
+            return 0;
+        }
+        LocalDate lastDay = until.toLocalDate();
+        int days = 0;
+        for (LocalDate day = first.toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(backfillDays)) {
+            LocalDate endDay = day.plusDays(backfillDays - 1L);
+            Map<String, Object> params = new HashMap<>();
+            params.put("startDate", Date.valueOf(day));
+            params.put("endDate", Date.valueOf(endDay));
+            params.put("startDateTime", Timestamp.valueOf(day.atStartOfDay()));
+            params.put("endDateTime", Timestamp.valueOf(endDay.plusDays(1).atStartOfDay()));
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(DELETE_RANGE_ROLLUPS, params);
+                jdbcTemplate.update(INSERT_RANGE_ROLLUPS, params);
+            });
+            days += backfillDays;
+            log.debug("Daily rollups backfilled from {} to {}", day, endDay);
+        }
+        return days;
+    }
+
+    private int recomputeChangedDays(TransactionTemplate transactionTemplate, LocalDateTime since) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("since", Timestamp.valueOf(since));
+        Map<LocalDate, List<String>> changedDays = new TreeMap<>();
+        jdbcTemplate.query(SELECT_CHANGED_DAYS, params, rs -> {
+            changedDays.computeIfAbsent(rs.getDate("rollupDate").toLocalDate(), k -> new ArrayList<>())
+                    .add(rs.getString("RequestingFacilityCode"));
+        });
+        changedDays.forEach((day, orgUnitCodes) -> transactionTemplate
+                .executeWithoutResult(status -> recompute(day, orgUnitCodes)));
+        return changedDays.size();
+    }
+
+    private void recompute(LocalDate day, List<String> orgUnitCodes) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("day", Date.valueOf(day));
+        params.put("dayStart", Timestamp.valueOf(day.atStartOfDay()));
+        params.put("nextDayStart", Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        params.put("ouCodes", orgUnitCodes);
+        jdbcTemplate.update(DELETE_ROLLUPS, params);
+        jdbcTemplate.update(INSERT_ROLLUPS, params);
+    }
+
+    /**
+     * Whether the rollups can answer for the interval, they only hold whole days.
+     */
+    public boolean covers(DateInterval dateInterval) {
+        LocalDateTime end = dateInterval.getEndDateTime();
+        return dateInterval.getStartDateTime().toLocalTime().equals(LocalTime.MIDNIGHT)
+                && (end.toLocalTime().isAfter(LocalTime.of(23, 59, 58)) || !end.isBefore(LocalDateTime.now()));
+    }
+
+    /**
+     * The result summaries of the health facilities in the interval, merged from
+     * the daily rollups.
+     */
+    public List<LabResultSummary> findResultSummaries(Set<String> orgUnitCodes, DateInterval dateInterval) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ouCodes", orgUnitCodes);
+        params.put("startDate", Date.valueOf(dateInterval.getStartDateTime().toLocalDate()));
+        params.put("endDate", Date.valueOf(dateInterval.getEndDateTime().toLocalDate()));
+
+        Map<List<String>, RollupSummary> summaries = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_ROLLUPS, params, rs -> {
+            String typeOfResult = rs.getString("TypeOfResult");
+            RollupSummary summary = new RollupSummary(rs.getString("RequestingProvinceName"),
+                    rs.getString("RequestingDistrictName"), rs.getString("RequestingFacilityName"),
+                    rs.getString("RequestingFacilityCode"), typeOfResult.isEmpty() ? null : typeOfResult);
+            summary.statistics = ViralResultStatistics.builder()
+                    .typeOfResult(summary.typeOfResult)
+                    .total(rs.getInt("Total"))
+                    .processed(rs.getInt("Processed"))
+                    .pending(rs.getInt("Pending"))
+                    .noProcessedInvalidResult(rs.getInt("NotProcessedInvalidResult"))
+                    .noProcessedNidNotFound(rs.getInt("NotProcessedNidNotFound"))
+                    .notProcessedDuplicateNid(rs.getInt("NotProcessedDuplicateNid"))
+                    .notProcessedDuplicatedReqId(rs.getInt("NotProcessedDuplicatedRequestId"))
+                    .build();
+            summaries.merge(summary.key(), summary, RollupSummary::combine);
+        });
+        return new ArrayList<>(summaries.values());
+    }
+
+    private static class RollupSummary implements LabResultSummary {
+        private final String requestingProvinceName;
+        private final String requestingDistrictName;
+        private final String facilityName;
+        private final String healthFacilityLabCode;
+        private final String typeOfResult;
+        private ViralResultStatistics statistics;
+
+        RollupSummary(String requestingProvinceName, String requestingDistrictName, String facilityName,
+                String healthFacilityLabCode, String typeOfResult) {
+            this.requestingProvinceName = requestingProvinceName;
+            this.requestingDistrictName = requestingDistrictName;
+            this.facilityName = facilityName;
+            this.healthFacilityLabCode = healthFacilityLabCode;
+            this.typeOfResult = typeOfResult;
+        }
+
+        List<String> key() {
+            return Arrays.asList(requestingProvinceName, requestingDistrictName, facilityName, healthFacilityLabCode,
+                    typeOfResult);
+        }
+
+        RollupSummary combine(RollupSummary other) {
+            statistics.combine(other.statistics);
+            return this;
+        }
+
+        public String getRequestingProvinceName() {
+            return requestingProvinceName;
+        }
+
+        public String getRequestingDistrictName() {
+            return requestingDistrictName;
+        }
+
+        public String getHealthFacilityLabCode() {
+            return healthFacilityLabCode;
+        }
+
+        public String getTypeOfResult() {
+            return typeOfResult;
+        }
+
+        public String getFacilityName() {
+            return facilityName;
+        }
+
+        public int getTotalReceived() {
+            return statistics.getTotal();
+        }
+
+        public int getTotalPending() {
+            return statistics.getPending();
+        }
+
+        public int getProcessed() {
+            return statistics.getProcessed();
+        }
+
+        public int getNotProcessedInvalidResult() {
+            return statistics.getNoProcessedInvalidResult();
+        }
+
+        public int getNotProcessedNidNotFount() {
+            return statistics.getNoProcessedNidNotFound();
+        }
+
+        public int getNotProcessedDuplicateNid() {
+            return statistics.getNotProcessedDuplicateNid();
+        }
+
+        public int getNotProcessedDuplicatedRequestId() {
+            return statistics.getNotProcessedDuplicatedReqId();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package disa.notification.service.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.entity.OrgUnit;
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.ReportMetrics;
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResultDataset;
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
+import disa.notification.service.service.interfaces.ReportFingerprint;
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.DateTimeUtils;
+import disa.notification.service.utils.InMemoryLabResultDataset;
+import disa.notification.service.utils.LabResultAggregator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Reads the slice of VlData of an implementing partner once and derives every
+ * dataset of the report from that single pass.
+ */
+@Log4j2
+@Repository
+@RequiredArgsConstructor
+public class LabResultDatasetRepository {
+
+    private final ReportResultRepository reportResultRepository;
+    private final Optional<DailyResultRollupRepository> rollupRepository;
+    private final ReportMetrics reportMetrics;
+
+    @Value("${app.report.pendingDays:2}")
+    private int pendingDays;
+
+    /**
+     * The returned dataset must be read inside a transaction.
+     */
+    public LabResultDataset findPartnerDataset(ImplementingPartner implementingPartner,
+            DateInterval reportDateInterval) {
+        return new PartnerDataset(implementingPartner.getOrgName(), implementingPartner.getOrgUnitCodes(),
+                reportDateInterval);
+    }
+
+    /**
+     * Reads the results of all the implementing partners in a single scan and
+     * splits them by the implementing partner of their health facility. Every
+     * result is kept in memory, this must be called inside a transaction.
+     *
+     * @return the datasets by implementing partner id
+     */
+    public Map<Integer, LabResultDataset> findPartnerDatasets(Collection<ImplementingPartner> implementingPartners,
+            DateInterval reportDateInterval) {
+        Set<String> orgUnitCodes = new HashSet<>();
+        Map<String, Integer> partnersByOrgUnit = new HashMap<>();
+        for (ImplementingPartner implementingPartner : implementingPartners) {
+            for (OrgUnit orgUnit : implementingPartner.getOrgUnits()) {
+                orgUnitCodes.add(orgUnit.getCode());
+                partnersByOrgUnit.put(orgUnitKey(orgUnit.getCode()), orgUnit.getImplementingPartnerId());
+            }
+        }
+        Set<String> unmatchedCodes = new TreeSet<>();
+
+        Map<Integer, List<LabResultSummary>> rollupSummaries = null;
+        if (!orgUnitCodes.isEmpty() && coveredByRollups(reportDateInterval)) {
+            rollupSummaries = new HashMap<>();
+            for (LabResultSummary summary : findRollupSummaries(ReportMetrics.ALL_PARTNERS, orgUnitCodes,
+                    reportDateInterval)) {
+                Integer partnerId = partnersByOrgUnit.get(orgUnitKey(summary.getHealthFacilityLabCode()));
+                if (partnerId == null) {
+                    unmatchedCodes.add(summary.getHealthFacilityLabCode());
+                } else {
+                    rollupSummaries.computeIfAbsent(partnerId, k -> new ArrayList<>()).add(summary);
+                }
+            }
+        }
+
+        Map<Integer, InMemoryLabResultDataset> datasets = new HashMap<>();
+        for (ImplementingPartner implementingPartner : implementingPartners) {
+            datasets.put(implementingPartner.getId(), rollupSummaries == null ? new InMemoryLabResultDataset()
+                    : new InMemoryLabResultDataset(
+                            rollupSummaries.getOrDefault(implementingPartner.getId(), Collections.emptyList())));
+        }
+        Map<String, InMemoryLabResultDataset> datasetsByOrgUnit = new HashMap<>();
+        partnersByOrgUnit.forEach(
+                (orgUnitKey, partnerId) -> datasetsByOrgUnit.put(orgUnitKey, datasets.get(partnerId)));
+
+        if (!orgUnitCodes.isEmpty()) {
+            long[] unmatchedResults = new long[1];
+            forEachResult(ReportMetrics.ALL_PARTNERS, orgUnitCodes, reportDateInterval, (result, received, pending) -> {
+                InMemoryLabResultDataset dataset = datasetsByOrgUnit
+                        .get(orgUnitKey(result.getHealthFacilityLabCode()));
+                if (dataset == null) {
+                    unmatchedResults[0]++;
+                    unmatchedCodes.add(result.getHealthFacilityLabCode());
+                } else {
+                    dataset.add(result, received, pending);
+                }
+            });
+            for (HealthFacilityLastSync lastSync : findLastSyncDates(ReportMetrics.ALL_PARTNERS, orgUnitCodes)) {
+                InMemoryLabResultDataset dataset = datasetsByOrgUnit
+                        .get(orgUnitKey(lastSync.getHealthFacilityLabCode()));
+                if (dataset == null) {
+                    unmatchedCodes.add(lastSync.getHealthFacilityLabCode());
+                } else {
+                    dataset.addLastSync(lastSync);
+                }
+            }
+            if (!unmatchedCodes.isEmpty()) {
+                log.warn("Skipped {} results of health facilities matching no org unit: {}", unmatchedResults[0],
+                        unmatchedCodes);
+            }
+        }
+        return Collections.unmodifiableMap(datasets);
+    }
+
+    /**
+     * Describes the results of a report, two reports with the same description
+     * have the same content. The last sync dates are only part of it when there
+     * are pending results, as they are only shown for those.
+     */
+    public String findReportFingerprint(ImplementingPartner implementingPartner, DateInterval reportDateInterval) {
+        String partner = implementingPartner.getOrgName();
+        Set<String> orgUnitCodes = implementingPartner.getOrgUnitCodes();
+        LocalDateTime pendingCutoff = DateTimeUtils.getPendingCutoff(pendingDays);
+        long startTime = System.nanoTime();
+        ReportFingerprint fingerprint = reportResultRepository.findReportFingerprint(
+                reportDateInterval.getStartDateTime(), reportDateInterval.getEndDateTime(), pendingCutoff,
+                orgUnitCodes);
+        reportMetrics.recordQuery(partner, "fingerprint", startTime, 1);
+        StringBuilder description = new StringBuilder()
+                .append(new TreeSet<>(orgUnitCodes)).append('|')
+                .append(reportDateInterval.getStartDateTime()).append('|')
+                .append(reportDateInterval.getEndDateTime()).append('|')
+                .append(pendingCutoff).append('|')
+                .append(fingerprint.getResultCount()).append('|')
+                .append(fingerprint.getPendingCount()).append('|')
+                .append(fingerprint.getLastCreatedAt()).append('|')
+                .append(fingerprint.getLastUpdatedAt());
+        if (fingerprint.getPendingCount() != null && fingerprint.getPendingCount() > 0) {
+            findLastSyncDates(partner, orgUnitCodes).stream()
+                    .sorted(Comparator.comparing(HealthFacilityLastSync::getHealthFacilityLabCode))
+                    .forEach(lastSync -> description.append('|').append(lastSync.getHealthFacilityLabCode())
+                            .append('=').append(lastSync.getLastSyncDate()));
+        }
+        return description.toString();
+    }
+
+    /**
+     * The org unit codes as MySQL compares them in {@code IN (:ouCodes)}, its
+     * collations ignore case and trailing spaces.
+     */
+    private static String orgUnitKey(String orgUnitCode) {
+        return orgUnitCode != null ? orgUnitCode.stripTrailing().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * The daily rollups hold whole days, they replace the summaries aggregated
+     * from the results when the interval is made of whole days.
+     */
+    private boolean coveredByRollups(DateInterval reportDateInterval) {
+        return rollupRepository.isPresent() && rollupRepository.get().covers(reportDateInterval);
+    }
+
+    private List<LabResultSummary> findRollupSummaries(String partner, Set<String> orgUnitCodes,
+            DateInterval reportDateInterval) {
+        long startTime = System.nanoTime();
+        List<LabResultSummary> summaries = rollupRepository.get().findResultSummaries(orgUnitCodes,
+                reportDateInterval);
+        reportMetrics.recordQuery(partner, "rollupSummaries", startTime, summaries.size());
+        return summaries;
+    }
+
+    private List<HealthFacilityLastSync> findLastSyncDates(String partner, Set<String> orgUnitCodes) {
+        long startTime = System.nanoTime();
+        List<HealthFacilityLastSync> lastSyncDates = reportResultRepository.findLastSyncDates(orgUnitCodes);
+        reportMetrics.recordQuery(partner, "lastSyncDates", startTime, lastSyncDates.size());
+        return lastSyncDates;
+    }
+
+    /**
+     * The time of the query includes handing every row to the consumers, as the
+     * rows are streamed.
+     */
+    private void forEachResult(String partner, Set<String> orgUnitCodes, DateInterval reportDateInterval,
+            ResultConsumer consumer) {
+        LocalDateTime startDateTime = reportDateInterval.getStartDateTime();
+        LocalDateTime endDateTime = reportDateInterval.getEndDateTime();
+        LocalDateTime pendingCutoff = DateTimeUtils.getPendingCutoff(pendingDays);
+
+        long startTime = System.nanoTime();
+        long rows = reportResultRepository.forEachReportResult(startDateTime, endDateTime, pendingCutoff,
+                orgUnitCodes, result -> {
+                    LocalDateTime createdAt = result.getCreatedAt();
+                    consumer.accept(result, !createdAt.isBefore(startDateTime) && !createdAt.isAfter(endDateTime),
+                            result.getViralLoadStatusValue() == ViralLoadStatus.PENDING
+                                    && createdAt.isBefore(pendingCutoff));
+                });
+        reportMetrics.recordQuery(partner, "results", startTime, rows);
+    }
+
+    /**
+     * Receives each result with whether it was received in the report interval
+     * and whether it is pending, a result can be both.
+     */
+    private interface ResultConsumer {
+        void accept(LabResults result, boolean received, boolean pending);
+    }
+
+    private class PartnerDataset implements LabResultDataset {
+
+        private final String partner;
+        private final Set<String> orgUnitCodes;
+        private final DateInterval reportDateInterval;
+        private final boolean fromRollups;
+        private LabResultAggregator aggregator;
+        private List<LabResultSummary> rollupSummaries;
+
+        PartnerDataset(String partner, Set<String> orgUnitCodes, DateInterval reportDateInterval) {
+            this.partner = partner;
+            this.orgUnitCodes = orgUnitCodes;
+            this.reportDateInterval = reportDateInterval;
+            this.fromRollups = coveredByRollups(reportDateInterval);
+        }
+
+        @Override
+        public void forEachResult(Consumer<LabResults> received, Consumer<LabResults> pending) {
+            LabResultAggregator results = new LabResultAggregator();
+            LabResultDatasetRepository.this.forEachResult(partner, orgUnitCodes, reportDateInterval,
+                    (result, isReceived, isPending) -> {
+                        if (isReceived) {
+                            if (!fromRollups) {
+                                results.addReceived(result);
+                            }
+                            received.accept(result);
+                        }
+                        if (isPending) {
+                            results.addPending(result);
+                            pending.accept(result);
+                        }
+                    });
+            if (results.hasPendingResults()) {
+                findLastSyncDates(partner, orgUnitCodes).forEach(results::addLastSync);
+            }
+            aggregator = results;
+        }
+
+        /**
+         * Read once from the daily rollups when they are enabled and cover the
+         * interval, the received results are then not aggregated.
+         */
+        @Override
+        public List<LabResultSummary> getResultSummaries() {
+            if (fromRollups) {
+                if (rollupSummaries == null) {
+                    rollupSummaries = findRollupSummaries(partner, orgUnitCodes, reportDateInterval);
+                }
+                return rollupSummaries;
+            }
+            return getAggregator().getResultSummaries();
+        }
+
+        @Override
+        public List<PendingHealthFacilitySummary> getPendingHealthFacilitySummaries() {
+            return getAggregator().getPendingHealthFacilitySummaries();
+        }
+
+        /**
+         * Counts the results when they have not been read yet.
+         */
+        @Override
+        public boolean isEmpty() {
+            if (aggregator != null) {
+                return LabResultDataset.super.isEmpty();
+            }
+            long startTime = System.nanoTime();
+            ReportFingerprint fingerprint = reportResultRepository.findReportFingerprint(
+                    reportDateInterval.getStartDateTime(), reportDateInterval.getEndDateTime(),
+                    DateTimeUtils.getPendingCutoff(pendingDays), orgUnitCodes);
+            reportMetrics.recordQuery(partner, "count", startTime, 1);
+            return fingerprint.getResultCount() == 0;
+        }
+
+        private LabResultAggregator getAggregator() {
+            if (aggregator == null) {
+                throw new IllegalStateException("The results have not been read yet");
+            }
+            return aggregator;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package disa.notification.service.repository;
+
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.DateTimeUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Runs EXPLAIN on the reporting queries at startup and warns when MySQL would
+ * scan the whole VlData table, or every result of the health facilities, or when
+ * the indexes the queries and the daily rollups rely on are missing.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.report.indexAdvisor.enabled", havingValue = "true", matchIfMissing = true)
+public class ReportIndexAdvisor {
+
+    private static final String CODE_COLUMN = "RequestingFacilityCode";
+
+    /**
+     * The pending and the interval branches of the report queries each read a
+     * range of one of these.
+     */
+    private static final Map<String, List<String>> REPORT_INDEXES = new LinkedHashMap<>();
+    static {
+        REPORT_INDEXES.put("idx_vldata_report", Arrays.asList(CODE_COLUMN, "VIRAL_LOAD_STATUS", "CREATED_AT"));
+        REPORT_INDEXES.put("idx_vldata_report_interval", Arrays.asList(CODE_COLUMN, "CREATED_AT"));
+    }
+
+    /**
+     * The daily rollups find the changed results with a range of each of these.
+     */
+    private static final List<List<String>> ROLLUP_INDEX_COLUMNS = Arrays.asList(Arrays.asList("UPDATED_AT"),
+            Arrays.asList("CREATED_AT"));
+
+    private static final String INDEX_COLUMNS_QUERY = "SELECT INDEX_NAME, COLUMN_NAME FROM information_schema.STATISTICS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'VlData' ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+
+    private static final String CODE_COLUMN_QUERY = "SELECT DATA_TYPE, CHARACTER_OCTET_LENGTH, IS_NULLABLE "
+            + "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'VlData' "
+            + "AND COLUMN_NAME = '" + CODE_COLUMN + "'";
+
+    private static final String SAMPLE_ORG_UNITS_QUERY = "SELECT code FROM OrgUnit WHERE implementingPartnerId IS NOT NULL LIMIT 100";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.report.pendingDays:2}")
+    private int pendingDays;
+
+    @Value("${app.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void adviseIndexes() {
+        try {
+            String databaseProduct = (String) JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getJdbcTemplate().getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            if (!"MySQL".equalsIgnoreCase(databaseProduct)) {
+                log.debug("Skipping report index advice on {}", databaseProduct);
+                return;
+            }
+            Map<String, List<String>> indexes = findIndexes();
+            checkIndexes(indexes);
+            Map<String, Object> params = sampleParameters();
+            int codeKeyLength = getCodeKeyLength();
+            explain("forEachReportResult", ReportResultRepository.REPORT_RESULTS_QUERY, params, indexes, codeKeyLength);
+            explain("findReportFingerprint", ReportResultRepository.REPORT_FINGERPRINT_QUERY, params, indexes,
+                    codeKeyLength);
+            // Reads every result of the health facilities by design
+            explain("findLastSyncDates", ReportResultRepository.LAST_SYNC_DATES_QUERY, params, indexes, -1);
+        } catch (Exception e) {
+            log.warn("Could not check the reporting query plans", e);
+        }
+    }
+
+    private Map<String, List<String>> findIndexes() {
+        Map<String, List<String>> indexes = new HashMap<>();
+        jdbcTemplate.getJdbcTemplate().query(INDEX_COLUMNS_QUERY, rs -> {
+            indexes.computeIfAbsent(rs.getString("INDEX_NAME"), k -> new ArrayList<>())
+                    .add(rs.getString("COLUMN_NAME").toLowerCase());
+        });
+        return indexes;
+    }
+
+    private void checkIndexes(Map<String, List<String>> indexes) {
+        REPORT_INDEXES.forEach((name, columns) -> {
+            if (!hasIndex(indexes, columns)) {
+                log.warn("VlData has no index on ({}), the reporting queries will be slow. Consider: "
+                        + "CREATE INDEX {} ON VlData ({})", String.join(", ", columns), name,
+                        String.join(", ", columns));
+            }
+        });
+        if (rollupEnabled) {
+            for (List<String> columns : ROLLUP_INDEX_COLUMNS) {
+                if (!hasIndex(indexes, columns)) {
+                    log.warn("VlData has no index on ({}), each refresh of the daily rollups will read the whole "
+                            + "table. See classpath:{}", String.join(", ", columns), DailyResultRollupRepository.SCRIPT);
+                }
+            }
+        }
+    }
+
+    private static boolean hasIndex(Map<String, List<String>> indexes, List<String> columns) {
+        return indexes.values().stream().anyMatch(indexColumns -> startsWith(indexColumns, columns));
+    }
+
+    private static boolean startsWith(List<String> indexColumns, List<String> columns) {
+        if (indexColumns.size() < columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!indexColumns.get(i).equalsIgnoreCase(columns.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The key_len MySQL reports for an index read of the RequestingFacilityCode
+     * column alone, or -1 when it is not a text column.
+     */
+    private int getCodeKeyLength() {
+        return jdbcTemplate.getJdbcTemplate().queryForObject(CODE_COLUMN_QUERY, (rs, rowNum) -> {
+            int octetLength = rs.getInt("CHARACTER_OCTET_LENGTH");
+            if (rs.wasNull()) {
+                return -1;
+            }
+            // Variable length columns store their length in two bytes, nullable ones a null flag
+            int lengthBytes = rs.getString("DATA_TYPE").toLowerCase().startsWith("var") ? 2 : 0;
+            int nullFlag = "YES".equalsIgnoreCase(rs.getString("IS_NULLABLE")) ? 1 : 0;
+            return octetLength + lengthBytes + nullFlag;
+        });
+    }
+
+    private Map<String, Object> sampleParameters() {
+        Set<String> orgUnitCodes = new HashSet<>(
+                jdbcTemplate.getJdbcTemplate().queryForList(SAMPLE_ORG_UNITS_QUERY, String.class));
+        if (orgUnitCodes.isEmpty()) {
+            orgUnitCodes.add("");
+        }
+        DateInterval lastWeek = DateTimeUtils.getLastWeekInterVal();
+        LocalDateTime pendingCutoff = DateTimeUtils.getPendingCutoff(pendingDays);
+        Map<String, Object> params = new HashMap<>();
+        params.put("ouCodes", orgUnitCodes);
+        params.put("startDateTime", lastWeek.getStartDateTime());
+        params.put("endDateTime", lastWeek.getEndDateTime());
+        params.put("pendingCutoff", pendingCutoff);
+        return params;
+    }
+
+    /**
+     * @param codeKeyLength the key_len of the RequestingFacilityCode prefix of an
+     *                      index, a plan reading no more than it is reported, or -1
+     *                      not to check it
+     */
+    private void explain(String queryName, String query, Map<String, Object> params,
+            Map<String, List<String>> indexes, int codeKeyLength) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + query, params);
+        for (Map<String, Object> step : plan) {
+            Object table = step.get("table");
+            // Skips the union results and derived tables, read from memory
+            if (table == null || table.toString().startsWith("<")) {
+                continue;
+            }
+            Object type = step.get("type");
+            Object key = step.get("key");
+            if ("ALL".equals(type) || key == null) {
+                log.warn("{} reads table {} without an index (type={}, possible_keys={}, rows={}). "
+                        + "Expected an index on {}", queryName, table, type, step.get("possible_keys"),
+                        step.get("rows"), getExpectedIndexes());
+            } else if (codeKeyLength >= 0 && isCodePrefixOnly(indexes.get(key.toString()), step.get("key_len"),
+                    codeKeyLength)) {
+                log.warn("{} reads table {} using only the {} prefix of index {} (key_len={}, rows={}), every "
+                        + "result of the health facilities is read. Expected a range on {}", queryName, table,
+                        CODE_COLUMN, key, step.get("key_len"), step.get("rows"), getExpectedIndexes());
+            } else {
+                log.info("{} reads table {} using index {} (type={}, key_len={}, rows={})", queryName, table, key,
+                        type, step.get("key_len"), step.get("rows"));
+            }
+        }
+    }
+
+    private static String getExpectedIndexes() {
+        return REPORT_INDEXES.values().stream().map(columns -> "(" + String.join(", ", columns) + ")")
+                .collect(Collectors.joining(" or "));
+    }
+
+    private static boolean isCodePrefixOnly(List<String> indexColumns, Object keyLength, int codeKeyLength) {
+        if (indexColumns == null || indexColumns.isEmpty() || !indexColumns.get(0).equalsIgnoreCase(CODE_COLUMN)
+                || keyLength == null) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(keyLength.toString()) <= codeKeyLength;
+        } catch (NumberFormatException e) {
+            // An index merge reports the key_len of each index
+            return false;
+        }
+    }
+}
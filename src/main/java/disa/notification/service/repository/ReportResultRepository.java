@@ -0,0 +1,291 @@
+package disa.notification.service.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.ReportFingerprint;
+
+/**
+ * Runs the reporting queries on VlData with plain JDBC, each row is read by
+ * column index into an immutable value class instead of a projection proxy.
+ * Results are read through a database cursor using {@code app.report.fetchSize},
+ * {@link #forEachReportResult} must be called inside a transaction to keep the
+ * cursor on the connection of the report.
+ */
+@Repository
+public class ReportResultRepository {
+
+    private static final String REPORT_RESULTS_FROM = "FROM VlData WHERE RequestingFacilityCode IN (:ouCodes) "
+            + "AND ENTITY_STATUS = 'ACTIVE' ";
+
+    /**
+     * The results pending since before the cutoff, a range of the index on
+     * (RequestingFacilityCode, VIRAL_LOAD_STATUS, CREATED_AT).
+     */
+    private static final String PENDING_RESULTS_WHERE = "AND VIRAL_LOAD_STATUS = 'PENDING' "
+            + "AND CREATED_AT < :pendingCutoff";
+
+    /**
+     * The results received in the interval, a range of the index on
+     * (RequestingFacilityCode, CREATED_AT). Those already read as pending are left
+     * out.
+     */
+    private static final String INTERVAL_RESULTS_WHERE = "AND CREATED_AT BETWEEN :startDateTime AND :endDateTime "
+            + "AND (VIRAL_LOAD_STATUS IS NULL OR VIRAL_LOAD_STATUS <> 'PENDING' OR CREATED_AT >= :pendingCutoff)";
+
+    private static final String REPORT_RESULTS_COLUMNS = "SELECT RequestId, UNIQUEID, FIRSTNAME, SURNAME, "
+            + "RequestingProvinceName, RequestingDistrictName, RequestingFacilityName, RequestingFacilityCode, "
+            + "CREATED_AT, UPDATED_AT, VIRAL_LOAD_STATUS, NOT_PROCESSING_CAUSE, TypeOfResult ";
+
+    /**
+     * Every result needed by a report: those pending since before the cutoff and
+     * those received in the interval. Each branch reads a range of its own index,
+     * a single OR of both would read every result of the health facilities.
+     */
+    public static final String REPORT_RESULTS_QUERY = REPORT_RESULTS_COLUMNS + REPORT_RESULTS_FROM
+            + PENDING_RESULTS_WHERE + " UNION ALL " + REPORT_RESULTS_COLUMNS + REPORT_RESULTS_FROM
+            + INTERVAL_RESULTS_WHERE;
+
+    public static final String LAST_SYNC_DATES_QUERY = "SELECT RequestingDistrictName, RequestingFacilityCode, "
+            + "MAX(UPDATED_AT) FROM VlData WHERE RequestingFacilityCode IN (:ouCodes) AND ENTITY_STATUS = 'ACTIVE' "
+            + "GROUP BY RequestingDistrictName, RequestingFacilityCode";
+
+    /**
+     * Cheap summary of the rows read by {@link #REPORT_RESULTS_QUERY}, it changes
+     * whenever a result of the report is added, removed or updated.
+     */
+    public static final String REPORT_FINGERPRINT_QUERY = "SELECT COUNT(*), SUM(PENDING), MAX(CREATED_AT), "
+            + "MAX(UPDATED_AT) FROM (SELECT 1 AS PENDING, CREATED_AT, UPDATED_AT " + REPORT_RESULTS_FROM
+            + PENDING_RESULTS_WHERE + " UNION ALL SELECT 0, CREATED_AT, UPDATED_AT " + REPORT_RESULTS_FROM
+            + INTERVAL_RESULTS_WHERE + ") report_results";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ReportResultRepository(DataSource dataSource, @Value("${app.report.fetchSize:1000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * Hands every row of {@link #REPORT_RESULTS_QUERY} to the consumer as it is
+     * read, no row is kept by this method.
+     *
+     * @return the number of rows read
+     */
+    public long forEachReportResult(LocalDateTime startDateTime, LocalDateTime endDateTime,
+            LocalDateTime pendingCutoff, Set<String> orgUnitCodes, Consumer<? super LabResults> consumer) {
+        long[] rows = new long[1];
+        jdbcTemplate.query(REPORT_RESULTS_QUERY, reportParameters(startDateTime, endDateTime, pendingCutoff,
+                orgUnitCodes), rs -> {
+                    rows[0]++;
+                    consumer.accept(new LabResult(rs));
+                });
+        return rows[0];
+    }
+
+    public List<HealthFacilityLastSync> findLastSyncDates(Set<String> orgUnitCodes) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ouCodes", orgUnitCodes);
+        return jdbcTemplate.query(LAST_SYNC_DATES_QUERY, params,
+                (rs, rowNum) -> new LastSync(rs.getString(1), rs.getString(2), getLocalDateTime(rs, 3)));
+    }
+
+    public ReportFingerprint findReportFingerprint(LocalDateTime startDateTime, LocalDateTime endDateTime,
+            LocalDateTime pendingCutoff, Set<String> orgUnitCodes) {
+        return jdbcTemplate.queryForObject(REPORT_FINGERPRINT_QUERY,
+                reportParameters(startDateTime, endDateTime, pendingCutoff, orgUnitCodes),
+                (rs, rowNum) -> new Fingerprint(rs.getLong(1), getLong(rs, 2), getLocalDateTime(rs, 3),
+                        getLocalDateTime(rs, 4)));
+    }
+
+    private static Map<String, Object> reportParameters(LocalDateTime startDateTime, LocalDateTime endDateTime,
+            LocalDateTime pendingCutoff, Set<String> orgUnitCodes) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ouCodes", orgUnitCodes);
+        params.put("startDateTime", startDateTime);
+        params.put("endDateTime", endDateTime);
+        params.put("pendingCutoff", pendingCutoff);
+        return params;
+    }
+
+    private static LocalDateTime getLocalDateTime(ResultSet rs, int column) throws SQLException {
+        return rs.getObject(column, LocalDateTime.class);
+    }
+
+    private static Long getLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * A row of {@link #REPORT_RESULTS_QUERY}.
+     */
+    private static final class LabResult implements LabResults {
+        private final String requestId;
+        private final String nid;
+        private final String firstName;
+        private final String lastName;
+        private final String requestingProvinceName;
+        private final String requestingDistrictName;
+        private final String requestingFacilityName;
+        private final String healthFacilityLabCode;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final String viralLoadStatus;
+        private final String notProcessingCause;
+        private final String typeOfResult;
+        private final ViralLoadStatus viralLoadStatusValue;
+        private final NotProcessingCause notProcessingCauseValue;
+
+        LabResult(ResultSet rs) throws SQLException {
+            requestId = rs.getString(1);
+            nid = rs.getString(2);
+            firstName = rs.getString(3);
+            lastName = rs.getString(4);
+            requestingProvinceName = rs.getString(5);
+            requestingDistrictName = rs.getString(6);
+            requestingFacilityName = rs.getString(7);
+            healthFacilityLabCode = rs.getString(8);
+            createdAt = getLocalDateTime(rs, 9);
+            updatedAt = getLocalDateTime(rs, 10);
+            viralLoadStatus = rs.getString(11);
+            notProcessingCause = rs.getString(12);
+            typeOfResult = rs.getString(13);
+            // Parsed once, the report reads them several times per result
+            viralLoadStatusValue = ViralLoadStatus.parse(viralLoadStatus);
+            notProcessingCauseValue = NotProcessingCause.parse(notProcessingCause);
+        }
+
+        public String getNID() {
+            return nid;
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getHealthFacilityLabCode() {
+            return healthFacilityLabCode;
+        }
+
+        public String getTypeOfResult() {
+            return typeOfResult;
+        }
+
+        public String getRequestingFacilityName() {
+            return requestingFacilityName;
+        }
+
+        public String getViralLoadStatus() {
+            return viralLoadStatus;
+        }
+
+        public String getNotProcessingCause() {
+            return notProcessingCause;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public String getRequestingProvinceName() {
+            return requestingProvinceName;
+        }
+
+        public String getRequestingDistrictName() {
+            return requestingDistrictName;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public ViralLoadStatus getViralLoadStatusValue() {
+            return viralLoadStatusValue;
+        }
+
+        public NotProcessingCause getNotProcessingCauseValue() {
+            return notProcessingCauseValue;
+        }
+    }
+
+    private static final class LastSync implements HealthFacilityLastSync {
+        private final String requestingDistrictName;
+        private final String healthFacilityLabCode;
+        private final LocalDateTime lastSyncDate;
+
+        LastSync(String requestingDistrictName, String healthFacilityLabCode, LocalDateTime lastSyncDate) {
+            this.requestingDistrictName = requestingDistrictName;
+            this.healthFacilityLabCode = healthFacilityLabCode;
+            this.lastSyncDate = lastSyncDate;
+        }
+
+        public String getRequestingDistrictName() {
+            return requestingDistrictName;
+        }
+
+        public String getHealthFacilityLabCode() {
+            return healthFacilityLabCode;
+        }
+
+        public LocalDateTime getLastSyncDate() {
+            return lastSyncDate;
+        }
+    }
+
+    private static final class Fingerprint implements ReportFingerprint {
+        private final Long resultCount;
+        private final Long pendingCount;
+        private final LocalDateTime lastCreatedAt;
+        private final LocalDateTime lastUpdatedAt;
+
+        Fingerprint(Long resultCount, Long pendingCount, LocalDateTime lastCreatedAt, LocalDateTime lastUpdatedAt) {
+            this.resultCount = resultCount;
+            this.pendingCount = pendingCount;
+            this.lastCreatedAt = lastCreatedAt;
+            this.lastUpdatedAt = lastUpdatedAt;
+        }
+
+        public Long getResultCount() {
+            return resultCount;
+        }
+
+        public Long getPendingCount() {
+            return pendingCount;
+        }
+
+        public LocalDateTime getLastCreatedAt() {
+            return lastCreatedAt;
+        }
+
+        public LocalDateTime getLastUpdatedAt() {
+            return lastUpdatedAt;
+        }
+    }
+}
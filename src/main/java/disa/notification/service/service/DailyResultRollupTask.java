@@ -0,0 +1,27 @@
+package disa.notification.service.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import disa.notification.service.repository.DailyResultRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.rollup.enabled", havingValue = "true")
+public class DailyResultRollupTask {
+
+    private final DailyResultRollupRepository rollupRepository;
+
+    @Scheduled(fixedDelayString = "${app.rollup.refreshDelayMs:900000}")
+    public void refreshRollups() {
+        try {
+            rollupRepository.refresh();
+        } catch (RuntimeException e) {
+            log.error("Could not refresh the daily result rollups", e);
+        }
+    }
+}
@@ -1,30 +1,35 @@
 package disa.notification.service.service;
 
-import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-
-import javax.mail.MessagingException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.repository.DailyResultRollupRepository;
 import disa.notification.service.repository.ImplementingPartnerRepository;
-import disa.notification.service.repository.ViralLoaderRepository;
-import disa.notification.service.service.interfaces.LabResultSummary;
-import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.repository.LabResultDatasetRepository;
+import disa.notification.service.service.interfaces.LabResultDataset;
 import disa.notification.service.service.interfaces.MailService;
-import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
 import disa.notification.service.utils.DateInterval;
 import disa.notification.service.utils.DateIntervalGenerator;
 import disa.notification.service.utils.DateTimeUtils;
+import disa.notification.service.utils.FileReportOutput;
 import lombok.RequiredArgsConstructor;
 
 @Component
@@ -35,10 +40,16 @@ public class LabResultSenderTask {
     private final Environment env;
     private final ImplementingPartnerRepository ipRepository;
     private final MailService mailService;
-    private final ViralLoaderRepository viralLoaderRepository;
+    private final LabResultDatasetRepository labResultDatasetRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ReportPipeline reportPipeline;
+    private final ReportCheckpointStore checkpointStore;
+    private final ReportCache reportCache;
+    private final Optional<DailyResultRollupRepository> rollupRepository;
 
     @Scheduled(cron = "${task.cron}")
     public void sendLabResultReport() {
+        long startTime = System.currentTimeMillis();
         DateInterval reportDateInterval = getDateIntervalGenerator().generateDateInterval();
         log.info("Starting weekly report task");
         log.info("Report date interval {}", reportDateInterval);
@@ -51,9 +62,99 @@ public class LabResultSenderTask {
         List<ImplementingPartner> implementingPartners = ipRepository
                 .findByEnabledTrueAndRepoLinkIsNotNullAndRepoIdIsNotNull();
 
+        refreshRollups();
+        checkpointStore.deleteExpired();
+        reportCache.deleteExpired();
+
+        Map<Integer, String> fingerprints = new HashMap<>();
+        Map<Integer, LabResultDataset> batchDatasets = Collections.emptyMap();
+        if (isBatchMode()) {
+            // Only the results of the reports not in the cache are read
+            List<ImplementingPartner> uncachedPartners = new ArrayList<>();
+            for (ImplementingPartner implementingPartner : implementingPartners) {
+                if (reportCache.isEnabled()) {
+                    String fingerprint = getFingerprint(implementingPartner, reportDateInterval);
+                    fingerprints.put(implementingPartner.getId(), fingerprint);
+                    if (reportCache.contains(fingerprint)) {
+                        continue;
+                    }
+                }
+                uncachedPartners.add(implementingPartner);
+            }
+            if (!uncachedPartners.isEmpty()) {
+                batchDatasets = readPartnerDatasets(uncachedPartners, reportDateInterval);
+            }
+        }
+
+        List<Future<?>> reports = new ArrayList<>();
         for (ImplementingPartner implementingPartner : implementingPartners) {
+            reports.add(submitReport(implementingPartner, reportDateInterval,
+                    batchDatasets.get(implementingPartner.getId()), fingerprints.get(implementingPartner.getId())));
+        }
+
+        for (Future<?> report : reports) {
+            try {
+                report.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Weekly report task interrupted", e);
+                return;
+            } catch (ExecutionException e) {
+                // Already logged with the implementing partner
+            }
+        }
+        reportPipeline.logMetrics();
+        log.info("Weekly report task finished in {} ms for {} implementing partners",
+                System.currentTimeMillis() - startTime, implementingPartners.size());
+    }
+
+    private boolean isBatchMode() {
+        return env.getProperty("app.report.batchMode", Boolean.class, Boolean.FALSE);
+    }
+
+    /**
+     * Reads the results of every implementing partner with a single query.
+     */
+    private Map<Integer, LabResultDataset> readPartnerDatasets(List<ImplementingPartner> implementingPartners,
+            DateInterval reportDateInterval) {
+        long startTime = System.currentTimeMillis();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Map<Integer, LabResultDataset> datasets = transactionTemplate.execute(
+                status -> labResultDatasetRepository.findPartnerDatasets(implementingPartners, reportDateInterval));
+        log.info("Results of {} implementing partners read in {} ms", implementingPartners.size(),
+                System.currentTimeMillis() - startTime);
+        return datasets;
+    }
+
+    /**
+     * @param batchDataset the results already read in batch mode, or null to read
+     *                     the results of the implementing partner
+     * @param fingerprint  the fingerprint of the report already computed in batch
+     *                     mode, or null to compute it
+     */
+    private CompletableFuture<Void> submitReport(ImplementingPartner implementingPartner,
+            DateInterval reportDateInterval, LabResultDataset batchDataset, String fingerprint) {
+        long startTime = System.currentTimeMillis();
+        return reportPipeline.submit(implementingPartner, reportDateInterval, () -> {
             log.info("Generating report for {}", implementingPartner.getOrgName());
-            sendEmailForImplementingPartner(implementingPartner, reportDateInterval);
+            return generateCachedReport(implementingPartner, reportDateInterval, batchDataset, fingerprint);
+        }).whenComplete((result, e) -> {
+            if (e == null) {
+                log.info("Report for {} finished in {} ms", implementingPartner.getOrgName(),
+                        System.currentTimeMillis() - startTime);
+            } else {
+                log.error("Erro ao gerar relatório de Cargas virais para {} após {} ms",
+                        implementingPartner.getOrgName(), System.currentTimeMillis() - startTime, e);
+            }
+        });
+    }
+
+    private void refreshRollups() {
+        try {
+            rollupRepository.ifPresent(DailyResultRollupRepository::refresh);
+        } catch (RuntimeException e) {
+            log.error("Could not refresh the daily result rollups, the summaries may be stale", e);
         }
     }
 
@@ -69,34 +170,45 @@ public class LabResultSenderTask {
         return generator;
     }
 
-    private void sendEmailForImplementingPartner(ImplementingPartner implementingPartner,
-            DateInterval reportDateInterval) {
-        LocalDateTime startDateTime = reportDateInterval.getStartDateTime();
-        LocalDateTime endDateTime = reportDateInterval.getEndDateTime();
-        Set<String> orgUnitCodes = implementingPartner.getOrgUnitCodes();
-        List<LabResultSummary> labResultSummary = viralLoaderRepository.findViralLoadResultSummary(
-                startDateTime,
-                endDateTime,
-                orgUnitCodes);
-        List<LabResults> labResults = viralLoaderRepository.findViralLoadResults(
-                startDateTime,
-                endDateTime,
-                orgUnitCodes);
-        List<LabResults> pendingResultsForMoreThan2Days = viralLoaderRepository
-                .findViralLoadResultsPendingMoreThan2Days(orgUnitCodes);
-        List<PendingHealthFacilitySummary> pendingHealthFacilitySummaries = viralLoaderRepository
-                .findUnsincronizedHealthFacilities(orgUnitCodes);
+    /**
+     * Reuses the cached report when the results of the implementing partner did not
+     * change since it was generated.
+     */
+    private Optional<FileReportOutput> generateCachedReport(ImplementingPartner implementingPartner,
+            DateInterval reportDateInterval, LabResultDataset batchDataset, String batchFingerprint) {
+        if (!reportCache.isEnabled()) {
+            return generateReport(implementingPartner, reportDateInterval, batchDataset);
+        }
+        String fingerprint = batchFingerprint != null ? batchFingerprint
+                : getFingerprint(implementingPartner, reportDateInterval);
+        Optional<FileReportOutput> cached = reportCache.find(fingerprint,
+                mailService.getReportOutput(implementingPartner, reportDateInterval));
+        if (cached.isPresent()) {
+            log.info("Results of {} unchanged, reusing the cached report", implementingPartner.getOrgName());
+            return cached;
+        }
+        Optional<FileReportOutput> report = generateReport(implementingPartner, reportDateInterval, batchDataset);
+        report.ifPresent(generated -> reportCache.store(fingerprint, generated));
+        return report;
+    }
 
-        try {
-            if (!labResultSummary.isEmpty() || !pendingResultsForMoreThan2Days.isEmpty()) {
-                mailService.sendEmail(implementingPartner, reportDateInterval, labResultSummary, labResults,
-                        pendingResultsForMoreThan2Days,
-                        pendingHealthFacilitySummaries);
-            } else {
-                mailService.sendNoResultsEmail(implementingPartner, reportDateInterval);
-            }
-        } catch (IOException | MessagingException e) {
-            log.error("Erro ao enviar relatório de Cargas virais", e);
+    private String getFingerprint(ImplementingPartner implementingPartner, DateInterval reportDateInterval) {
+        return reportCache.getFingerprint(implementingPartner,
+                mailService.getReportOutput(implementingPartner, reportDateInterval),
+                labResultDatasetRepository.findReportFingerprint(implementingPartner, reportDateInterval));
+    }
+
+    private Optional<FileReportOutput> generateReport(ImplementingPartner implementingPartner,
+            DateInterval reportDateInterval, LabResultDataset batchDataset) {
+        if (batchDataset != null) {
+            return mailService.generateReport(implementingPartner, reportDateInterval, batchDataset);
         }
+        // The detail results are streamed from a database cursor, which is only
+        // kept open inside a transaction
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> mailService.generateReport(implementingPartner,
+                reportDateInterval, labResultDatasetRepository.findPartnerDataset(implementingPartner,
+                        reportDateInterval)));
     }
 }
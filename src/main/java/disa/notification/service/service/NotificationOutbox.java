@@ -0,0 +1,202 @@
+package disa.notification.service.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import disa.notification.service.model.EmailDTO;
+import disa.notification.service.model.OutboxEntry;
+import disa.notification.service.utils.MultipartUtil;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Journal of the emails handed to the notifier. Each email is written to the
+ * outbox directory before it is sent and removed once the notifier accepts it,
+ * failed deliveries are retried with an exponential backoff without generating
+ * the report again. Emails that keep failing are moved to the failed
+ * sub directory.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "app.mailservice", havingValue = "javaMail")
+public class NotificationOutbox {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final String FAILED_DIRECTORY = "failed";
+    // Partner of the entries journaled before it was recorded
+    private static final String UNKNOWN_PARTNER = "unknown";
+
+    private final RestTemplate restTemplate;
+    private final ReportMetrics reportMetrics;
+
+    // Entries being sent, so the dispatcher does not send them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${disa.notifier.rest.endpoint}")
+    private String disaNotifierEndPoint;
+
+    @Value("${app.outbox.directory:outbox}")
+    private String directory;
+
+    @Value("${app.outbox.batchSize:20}")
+    private int batchSize;
+
+    @Value("${app.outbox.maxAttempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.initialBackoffMs:60000}")
+    private long initialBackoffMs;
+
+    @Value("${app.outbox.maxBackoffMs:21600000}")
+    private long maxBackoffMs;
+
+    public NotificationOutbox(RestTemplate restTemplate, ReportMetrics reportMetrics) {
+        this.restTemplate = restTemplate;
+        this.reportMetrics = reportMetrics;
+        Gauge.builder("disa.outbox.pending", this, NotificationOutbox::getPendingCount)
+                .description("Emails waiting in the outbox to be accepted by the notifier")
+                .register(reportMetrics.getRegistry());
+    }
+
+    /**
+     * Records the email and tries to send it right away, it is retried later if
+     * that fails. An email still pending with the same key is replaced.
+     */
+    public void send(String partner, String idempotencyKey, EmailDTO email, String attachmentName) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.setIdempotencyKey(idempotencyKey);
+        entry.setPartner(partner);
+        entry.setAttachmentName(attachmentName);
+        entry.setEmail(email);
+        entry.setCreatedAt(System.currentTimeMillis());
+        entry.setNextAttemptAt(entry.getCreatedAt());
+        try {
+            write(entry);
+        } catch (IOException e) {
+            log.error("Could not record email {} in the outbox, it will not be retried", idempotencyKey, e);
+        }
+        dispatch(entry);
+    }
+
+    /**
+     * Sends the emails whose next attempt is due, oldest first, up to the batch
+     * size per run.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.dispatchDelayMs:60000}")
+    public void dispatchPending() {
+        long now = System.currentTimeMillis();
+        List<OutboxEntry> due = new ArrayList<>();
+        for (OutboxEntry entry : readEntries()) {
+            if (entry.getNextAttemptAt() <= now) {
+                due.add(entry);
+            }
+        }
+        due.sort(Comparator.comparingLong(OutboxEntry::getNextAttemptAt));
+        if (due.isEmpty()) {
+            return;
+        }
+        List<OutboxEntry> batch = due.subList(0, Math.min(batchSize, due.size()));
+        log.info("Dispatching {} of {} pending emails", batch.size(), due.size());
+        batch.forEach(this::dispatch);
+    }
+
+    public int getPendingCount() {
+        return readEntries().size();
+    }
+
+    private void dispatch(OutboxEntry entry) {
+        String key = entry.getIdempotencyKey();
+        if (!inFlight.add(key)) {
+            return;
+        }
+        try {
+            long startTime = System.nanoTime();
+            ResponseEntity<String> response = MultipartUtil.sendMultipartRequest(restTemplate, disaNotifierEndPoint,
+                    entry.getEmail(), key);
+            reportMetrics.recordNotifierRequest(entry.getPartner() != null ? entry.getPartner() : UNKNOWN_PARTNER,
+                    startTime, response != null ? String.valueOf(response.getStatusCodeValue()) : "error");
+            if (response != null && response.getStatusCode().is2xxSuccessful()) {
+                log.info("Email sent successfully");
+                Files.deleteIfExists(getEntryPath(key));
+            } else {
+                retryLater(entry, response != null ? response.getStatusCode().toString() : "no response");
+            }
+        } catch (IOException e) {
+            log.error("Could not update email {} in the outbox", key, e);
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private void retryLater(OutboxEntry entry, String reason) throws IOException {
+        entry.setAttempts(entry.getAttempts() + 1);
+        if (entry.getAttempts() >= maxAttempts) {
+            log.error("Failed to send email {} after {} attempts ({}), giving up", entry.getIdempotencyKey(),
+                    entry.getAttempts(), reason);
+            Path failed = Paths.get(directory, FAILED_DIRECTORY);
+            Files.createDirectories(failed);
+            Files.move(getEntryPath(entry.getIdempotencyKey()),
+                    failed.resolve(entry.getIdempotencyKey() + ENTRY_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(entry.getAttempts() - 1, 30));
+        entry.setNextAttemptAt(System.currentTimeMillis() + backoff);
+        log.error("Failed to send email {} ({}), attempt {} of {}, retrying in {} ms", entry.getIdempotencyKey(),
+                reason, entry.getAttempts(), maxAttempts, backoff);
+        write(entry);
+    }
+
+    private List<OutboxEntry> readEntries() {
+        List<OutboxEntry> entries = new ArrayList<>();
+        Path outbox = Paths.get(directory);
+        if (!Files.isDirectory(outbox)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(outbox, "*" + ENTRY_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    entries.add(OBJECT_MAPPER.readValue(file.toFile(), OutboxEntry.class));
+                } catch (IOException e) {
+                    log.error("Could not read outbox entry {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not list the outbox {}", outbox, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Written to a temporary file first, so a crash never leaves a partial entry.
+     */
+    private void write(OutboxEntry entry) throws IOException {
+        Path path = getEntryPath(entry.getIdempotencyKey());
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        OBJECT_MAPPER.writeValue(tmp.toFile(), entry);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path getEntryPath(String idempotencyKey) {
+        return Paths.get(directory, idempotencyKey + ENTRY_SUFFIX);
+    }
+}
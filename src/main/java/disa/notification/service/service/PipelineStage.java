@@ -0,0 +1,93 @@
+package disa.notification.service.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * A stage of the report pipeline, running its work on its own executor and
+ * counting how much work it did.
+ */
+public class PipelineStage {
+
+    private final String name;
+    private final ThreadPoolTaskExecutor executor;
+    private final ReportMetrics metrics;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong busyMillis = new AtomicLong();
+
+    public PipelineStage(String name, ThreadPoolTaskExecutor executor, ReportMetrics metrics) {
+        this.name = name;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param partner implementing partner the work is done for, the metrics are
+     *                tagged with it
+     */
+    public <T> CompletableFuture<T> supply(String partner, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> measure(partner, work), executor);
+    }
+
+    /**
+     * Runs the work with the result of the previous stage once it completes. A
+     * failed previous stage is passed on without running the work.
+     */
+    public <T, R> CompletableFuture<R> then(CompletableFuture<T> previous, String partner, Function<T, R> work) {
+        return previous.thenApplyAsync(value -> measure(partner, () -> work.apply(value)), executor);
+    }
+
+    private <T> T measure(String partner, Supplier<T> work) {
+        long startTime = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = work.get();
+            completed.incrementAndGet();
+            succeeded = true;
+            return result;
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - startTime;
+            busyMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(elapsed));
+            metrics.recordStage(name, partner, elapsed, succeeded);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getBusyMillis() {
+        return busyMillis.get();
+    }
+
+    public int getQueueSize() {
+        return executor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: completed=%d, failed=%d, busy=%d ms, active=%d, queued=%d", name, getCompleted(),
+                getFailed(), getBusyMillis(), getActiveCount(), getQueueSize());
+    }
+}
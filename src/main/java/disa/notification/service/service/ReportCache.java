@@ -0,0 +1,207 @@
+package disa.notification.service.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.utils.FileReportOutput;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Keeps the generated reports on disk under a fingerprint of their inputs, so a
+ * report whose results did not change is copied instead of generated again. It
+ * also remembers the content of the reports uploaded to each Seafile repo, so
+ * the same file is not uploaded twice.
+ */
+@Log4j2
+@Component
+public class ReportCache {
+
+    // Changed whenever the content of the reports changes for the same results
+    private static final String REPORT_FORMAT_VERSION = "2";
+    private static final String REPORT_FILE = "report.xlsx";
+    private static final String STORED_FILE = "stored";
+    private static final String UPLOADED_DIRECTORY = "uploaded";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long retentionMillis;
+
+    public ReportCache(@Value("${app.reportCache.enabled:true}") boolean enabled,
+            @Value("${app.reportCache.directory:report-cache}") String directory,
+            @Value("${app.reportCache.retentionDays:60}") int retentionDays) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param report             where the mail service generates the report, as
+     *                           each one names it differently
+     * @param resultsDescription describes the results of the report, see
+     *                           {@code LabResultDatasetRepository.findReportFingerprint}
+     */
+    public String getFingerprint(ImplementingPartner ip, FileReportOutput report, String resultsDescription) {
+        return sha256(REPORT_FORMAT_VERSION + "|" + ip.getId() + "|" + ip.getOrgName() + "|" + report.getName() + "|"
+                + resultsDescription);
+    }
+
+    public boolean contains(String fingerprint) {
+        return enabled && Files.exists(directory.resolve(fingerprint).resolve(STORED_FILE));
+    }
+
+    /**
+     * Copies the cached report to the given output.
+     *
+     * @return the report, empty when there is none for the fingerprint
+     */
+    public Optional<FileReportOutput> find(String fingerprint, FileReportOutput report) {
+        if (!contains(fingerprint)) {
+            return Optional.empty();
+        }
+        Path entry = directory.resolve(fingerprint);
+        try {
+            Path target = report.getPath().toAbsolutePath();
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            Files.copy(entry.resolve(REPORT_FILE), target, StandardCopyOption.REPLACE_EXISTING);
+            // Keeps the entries in use past the retention period
+            Files.setLastModifiedTime(entry.resolve(STORED_FILE), FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(report);
+        } catch (IOException e) {
+            log.error("Could not read the cached report {}", entry, e);
+            return Optional.empty();
+        }
+    }
+
+    public void store(String fingerprint, FileReportOutput report) {
+        if (!enabled) {
+            return;
+        }
+        Path entry = directory.resolve(fingerprint);
+        try {
+            Files.createDirectories(entry);
+            Files.copy(report.getPath(), entry.resolve(REPORT_FILE), StandardCopyOption.REPLACE_EXISTING);
+            // Written last, an entry without it is ignored
+            Files.write(entry.resolve(STORED_FILE), new byte[0]);
+        } catch (IOException e) {
+            log.error("Could not cache the report {}", report.getPath(), e);
+        }
+    }
+
+    /**
+     * Whether a file with the same name and content was already uploaded to the
+     * repo.
+     */
+    public boolean isUploaded(String repoId, FileReportOutput report) {
+        if (!enabled) {
+            return false;
+        }
+        Path uploaded = getUploadedPath(repoId, report);
+        try {
+            return Files.exists(uploaded) && new String(Files.readAllBytes(uploaded), StandardCharsets.UTF_8)
+                    .equals(sha256(report.getPath()));
+        } catch (IOException e) {
+            log.error("Could not check whether {} was uploaded", report.getName(), e);
+            return false;
+        }
+    }
+
+    public void markUploaded(String repoId, FileReportOutput report) {
+        if (!enabled) {
+            return;
+        }
+        Path uploaded = getUploadedPath(repoId, report);
+        try {
+            Files.createDirectories(uploaded.getParent());
+            Files.write(uploaded, sha256(report.getPath()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.error("Could not record the upload of {}", report.getName(), e);
+        }
+    }
+
+    /**
+     * Deletes the reports not used within the retention period.
+     */
+    public void deleteExpired() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                Path storedFile = entry.resolve(STORED_FILE);
+                if (!entry.getFileName().toString().equals(UPLOADED_DIRECTORY)
+                        && (!Files.exists(storedFile) || Files.getLastModifiedTime(storedFile).toMillis() < expiredBefore)) {
+                    deleteRecursively(entry);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not delete the expired reports in {}", directory, e);
+        }
+    }
+
+    private Path getUploadedPath(String repoId, FileReportOutput report) {
+        return directory.resolve(UPLOADED_DIRECTORY).resolve(repoId).resolve(report.getName());
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static String sha256(String value) {
+        MessageDigest digest = newSha256();
+        return toHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package disa.notification.service.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.enums.ReportStage;
+import disa.notification.service.model.ReportCheckpoint;
+import disa.notification.service.utils.DateInterval;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Keeps the last stage finished for each implementing partner and report
+ * interval in a JSON file, so a run started again for the same interval skips
+ * the work already done. The checkpoints of each mail service are kept apart, a
+ * report written to disk is not delivered. With {@code app.checkpoint.ignore}
+ * every stage runs again.
+ */
+@Log4j2
+@Component
+public class ReportCheckpointStore {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final DateTimeFormatter KEY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String CHECKPOINT_SUFFIX = ".json";
+
+    private final Path directory;
+    private final long retentionMillis;
+    private final boolean ignored;
+
+    /**
+     * @param mailService the {@code app.mailservice} the checkpoints are kept for
+     * @param ignored     whether the saved checkpoints are ignored, to run every
+     *                    stage again
+     */
+    public ReportCheckpointStore(@Value("${app.checkpoint.directory:checkpoints}") String directory,
+            @Value("${app.mailservice:javaMail}") String mailService,
+            @Value("${app.checkpoint.retentionDays:30}") int retentionDays,
+            @Value("${app.checkpoint.ignore:false}") boolean ignored) {
+        this.directory = Paths.get(directory, mailService);
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.ignored = ignored;
+    }
+
+    public Optional<ReportCheckpoint> find(ImplementingPartner ip, DateInterval dateInterval) {
+        if (ignored) {
+            return Optional.empty();
+        }
+        Path path = getPath(ip, dateInterval);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(OBJECT_MAPPER.readValue(path.toFile(), ReportCheckpoint.class));
+        } catch (IOException e) {
+            log.error("Could not read checkpoint {}, starting the report from the beginning", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records the stage as finished. A failure to record it is only logged, the
+     * stage would be run again on a restart.
+     */
+    public void save(ImplementingPartner ip, DateInterval dateInterval, ReportStage stage, Path reportPath) {
+        ReportCheckpoint checkpoint = new ReportCheckpoint();
+        checkpoint.setImplementingPartnerId(ip.getId());
+        checkpoint.setStartDateTime(dateInterval.getStartDateTime().toString());
+        checkpoint.setEndDateTime(dateInterval.getEndDateTime().toString());
+        checkpoint.setStage(stage);
+        checkpoint.setReportPath(reportPath != null ? reportPath.toString() : null);
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+
+        Path path = getPath(ip, dateInterval);
+        try {
+            Files.createDirectories(directory);
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(tmp.toFile(), checkpoint);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Could not save checkpoint {}", path, e);
+        }
+    }
+
+    /**
+     * Deletes the checkpoints not updated within the retention period.
+     */
+    public void deleteExpired() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + CHECKPOINT_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < expiredBefore) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not delete the expired checkpoints in {}", directory, e);
+        }
+    }
+
+    private Path getPath(ImplementingPartner ip, DateInterval dateInterval) {
+        return directory.resolve(ip.getId() + "_" + dateInterval.getStartDateTime().format(KEY_FORMAT) + "_"
+                + dateInterval.getEndDateTime().format(KEY_FORMAT) + CHECKPOINT_SUFFIX);
+    }
+}
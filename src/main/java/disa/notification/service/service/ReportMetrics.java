@@ -0,0 +1,134 @@
+package disa.notification.service.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers and sizes of each implementing partner and stage of the report run,
+ * exposed by the Prometheus actuator endpoint.
+ */
+@Component
+public class ReportMetrics {
+
+    /**
+     * Partner tag of the work shared by every implementing partner, such as the
+     * single query of the batch mode.
+     */
+    public static final String ALL_PARTNERS = "all";
+
+    private static final String BYTES = "bytes";
+
+    private final MeterRegistry registry;
+
+    public ReportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the query started
+     * @param rows       rows read by the query
+     */
+    public void recordQuery(String partner, String query, long startNanos, long rows) {
+        Timer.builder("disa.report.query")
+                .description("Time of the VlData queries, until their last row is read")
+                .tags("partner", partner, "query", query)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("disa.report.query.rows")
+                .description("Rows read by the VlData queries")
+                .tags("partner", partner, "query", query)
+                .register(registry)
+                .record(rows);
+    }
+
+    public void recordSheet(String partner, String sheet, long nanos) {
+        Timer.builder("disa.report.sheet")
+                .description("Time to compose each sheet of the report")
+                .tags("partner", partner, "sheet", sheet)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordReportSize(String partner, long bytes) {
+        DistributionSummary.builder("disa.report.size")
+                .description("Size of the generated XLSX report")
+                .baseUnit(BYTES)
+                .tags("partner", partner)
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void recordAllocatedBytes(String partner, long bytes) {
+        DistributionSummary.builder("disa.report.allocated")
+                .description("Heap allocated by the thread generating the report")
+                .baseUnit(BYTES)
+                .tags("partner", partner)
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * @param bytes size of the report, not recorded when negative
+     */
+    public void recordUpload(String partner, long startNanos, long bytes) {
+        Timer.builder("disa.report.upload")
+                .description("Time to upload the report to Seafile")
+                .tags("partner", partner)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (bytes < 0) {
+            return;
+        }
+        DistributionSummary.builder("disa.report.upload.size")
+                .description("Bytes uploaded to Seafile")
+                .baseUnit(BYTES)
+                .tags("partner", partner)
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * @param status the HTTP status of the notifier, or error when it could not be
+     *               reached or answered with an error
+     */
+    public void recordNotifierRequest(String partner, long startNanos, String status) {
+        Timer.builder("disa.notifier.request")
+                .description("Latency of the requests to the notifier")
+                .tags("partner", partner, "status", status)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStage(String stage, String partner, long nanos, boolean succeeded) {
+        Timer.builder("disa.report.stage")
+                .description("Time of each stage of the report pipeline")
+                .tags("stage", stage, "partner", partner, "outcome", succeeded ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or -1 when the JVM
+     *         does not measure them
+     */
+    public static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
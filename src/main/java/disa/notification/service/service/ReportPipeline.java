@@ -0,0 +1,186 @@
+package disa.notification.service.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import javax.mail.MessagingException;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.enums.ReportStage;
+import disa.notification.service.model.ReportCheckpoint;
+import disa.notification.service.service.interfaces.MailService;
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.FileReportOutput;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Delivers the reports of the implementing partners in three stages, generate,
+ * upload and notify, each with its own workers and bounded queue. The report of
+ * a partner can be generated while the report of another one is uploaded.
+ */
+@Log4j2
+@Component
+public class ReportPipeline {
+
+    private final MailService mailService;
+    private final ReportCheckpointStore checkpointStore;
+    private final ReportCache reportCache;
+    private final ReportMetrics metrics;
+    private final PipelineStage generateStage;
+    private final PipelineStage uploadStage;
+    private final PipelineStage notifyStage;
+
+    public ReportPipeline(MailService mailService, ReportCheckpointStore checkpointStore, ReportCache reportCache,
+            ReportMetrics metrics, ThreadPoolTaskExecutor reportTaskExecutor, ThreadPoolTaskExecutor uploadTaskExecutor,
+            ThreadPoolTaskExecutor notifyTaskExecutor) {
+        this.mailService = mailService;
+        this.checkpointStore = checkpointStore;
+        this.reportCache = reportCache;
+        this.metrics = metrics;
+        this.generateStage = new PipelineStage("generate", reportTaskExecutor, metrics);
+        this.uploadStage = new PipelineStage("upload", uploadTaskExecutor, metrics);
+        this.notifyStage = new PipelineStage("notify", notifyTaskExecutor, metrics);
+        getStages().forEach(this::bindMetrics);
+    }
+
+    /**
+     * Runs the stages not finished yet for the implementing partner and report
+     * interval, a report already generated in a previous run is reused.
+     *
+     * @param generator generates the report of the implementing partner, empty
+     *                  when it has no results
+     * @return completed once the implementing partner is notified, or with the
+     *         failure of the first stage that failed
+     */
+    public CompletableFuture<Void> submit(ImplementingPartner ip, DateInterval dateInterval,
+            Supplier<Optional<FileReportOutput>> generator) {
+        ReportCheckpoint checkpoint = checkpointStore.find(ip, dateInterval).orElse(new ReportCheckpoint());
+        if (checkpoint.isFinished(ReportStage.NOTIFIED)) {
+            log.info("Report for {} already delivered for {}, skipping. Run with app.checkpoint.ignore=true "
+                    + "to deliver it again", ip.getOrgName(), dateInterval);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String partner = ip.getOrgName();
+        CompletableFuture<Optional<FileReportOutput>> generated = generateStage.supply(partner, () -> {
+            if (isGeneratedReportReusable(checkpoint)) {
+                log.info("Reusing the report generated for {}", ip.getOrgName());
+                return Optional.ofNullable(checkpoint.getReportPath())
+                        .map(path -> new FileReportOutput(Paths.get(path)));
+            }
+            Optional<FileReportOutput> report = generate(partner, generator);
+            checkpointStore.save(ip, dateInterval, ReportStage.GENERATED,
+                    report.map(FileReportOutput::getPath).orElse(null));
+            return report;
+        });
+        CompletableFuture<Optional<FileReportOutput>> uploaded = uploadStage.then(generated, partner, report -> {
+            if (report.isPresent() && !checkpoint.isFinished(ReportStage.UPLOADED)) {
+                upload(ip, report.get());
+                checkpointStore.save(ip, dateInterval, ReportStage.UPLOADED, report.get().getPath());
+            }
+            return report;
+        });
+        return notifyStage.then(uploaded, partner, report -> {
+            notify(ip, dateInterval, report);
+            checkpointStore.save(ip, dateInterval, ReportStage.NOTIFIED,
+                    report.map(FileReportOutput::getPath).orElse(null));
+            return null;
+        });
+    }
+
+    /**
+     * Records the heap allocated by the generator and the size of the report, the
+     * report is generated on the calling thread.
+     */
+    private Optional<FileReportOutput> generate(String partner, Supplier<Optional<FileReportOutput>> generator) {
+        long allocatedBefore = ReportMetrics.getAllocatedBytes();
+        Optional<FileReportOutput> report = generator.get();
+        if (allocatedBefore >= 0) {
+            metrics.recordAllocatedBytes(partner, ReportMetrics.getAllocatedBytes() - allocatedBefore);
+        }
+        report.map(this::getSize).filter(size -> size >= 0)
+                .ifPresent(size -> metrics.recordReportSize(partner, size));
+        return report;
+    }
+
+    /**
+     * @return the size of the report, or -1 when it cannot be read
+     */
+    private long getSize(FileReportOutput report) {
+        try {
+            return Files.size(report.getPath());
+        } catch (IOException e) {
+            log.warn("Could not read the size of {}", report.getPath(), e);
+            return -1;
+        }
+    }
+
+    private void bindMetrics(PipelineStage stage) {
+        Gauge.builder("disa.report.stage.queued", stage, PipelineStage::getQueueSize)
+                .description("Work waiting in the queue of the report pipeline stage")
+                .tag("stage", stage.getName())
+                .register(metrics.getRegistry());
+        Gauge.builder("disa.report.stage.active", stage, PipelineStage::getActiveCount)
+                .description("Workers busy in the report pipeline stage")
+                .tag("stage", stage.getName())
+                .register(metrics.getRegistry());
+    }
+
+    /**
+     * A report generated in a previous run is generated again when its file is
+     * gone.
+     */
+    private boolean isGeneratedReportReusable(ReportCheckpoint checkpoint) {
+        return checkpoint.isFinished(ReportStage.GENERATED)
+                && (checkpoint.getReportPath() == null || Files.exists(Paths.get(checkpoint.getReportPath())));
+    }
+
+    public List<PipelineStage> getStages() {
+        return Arrays.asList(generateStage, uploadStage, notifyStage);
+    }
+
+    public void logMetrics() {
+        getStages().forEach(stage -> log.info("Report pipeline {}", stage));
+    }
+
+    /**
+     * A report with the same name and content as one already uploaded to the repo
+     * of the implementing partner is not uploaded again.
+     */
+    private void upload(ImplementingPartner ip, FileReportOutput report) {
+        if (reportCache.isUploaded(ip.getRepoId(), report)) {
+            log.info("Report {} already uploaded, skipping the upload", report.getName());
+            return;
+        }
+        try {
+            long startTime = System.nanoTime();
+            mailService.uploadReport(ip, report);
+            metrics.recordUpload(ip.getOrgName(), startTime, getSize(report));
+            reportCache.markUploaded(ip.getRepoId(), report);
+        } catch (SeafileServiceException | IOException e) {
+            throw new RuntimeException("Could not upload the report " + report.getName(), e);
+        }
+    }
+
+    private void notify(ImplementingPartner ip, DateInterval dateInterval, Optional<FileReportOutput> report) {
+        try {
+            if (report.isPresent()) {
+                mailService.sendReportEmail(ip, dateInterval, report.get());
+            } else {
+                mailService.sendNoResultsEmail(ip, dateInterval);
+            }
+        } catch (MessagingException | IOException e) {
+            throw new RuntimeException("Could not notify " + ip.getOrgName(), e);
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package disa.notification.service.service;
 
-import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -15,12 +15,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import disa.notification.service.utils.ReportOutput;
 import disa.notification.service.utils.SeafileUtil;
 import lombok.extern.log4j.Log4j2;
 
@@ -39,8 +41,16 @@ public class SeafileService {
 
 	public final String HEADER = "--header 'accept: application/json' ";
 	
+	// Upload links are valid for an hour on the Seafile server
+	@Value("${disa.notifier.seafile.uploadLinkTtlSeconds:1800}")
+	private long uploadLinkTtlSeconds;
+	
 	private final RestTemplate restTemplate;
 	
+	private String token;
+	
+	private final Map<String, UploadLink> uploadLinks = new ConcurrentHashMap<>();
+	
 	public SeafileService(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
     }
@@ -67,51 +77,116 @@ public class SeafileService {
 		}
 	}
 	
+	/**
+	 * The token of the last login, a new login is only made when there is none
+	 * or the server rejected it.
+	 */
+	private synchronized String getCachedToken() throws SeafileServiceException, JsonProcessingException {
+		if (token == null) {
+			token = getAuthenticationToken();
+		}
+		return token;
+	}
+	
+	private synchronized void invalidateToken(String rejectedToken) {
+		// Another upload may have already logged in again
+		if (rejectedToken.equals(token)) {
+			token = null;
+		}
+	}
+	
+	/**
+	 * Runs the call with the cached token, logging in again and retrying once if
+	 * the server answers 401.
+	 */
+	private <T> T withToken(TokenCall<T> call) throws SeafileServiceException, JsonProcessingException {
+		String currentToken = getCachedToken();
+		try {
+			return call.execute(currentToken);
+		} catch (HttpClientErrorException.Unauthorized e) {
+			log.info("Seafile authentication token rejected, logging in again");
+			invalidateToken(currentToken);
+			return call.execute(getCachedToken());
+		}
+	}
+	
 	public String getAnUploadLink(String repoId) throws SeafileServiceException, JsonProcessingException {
+		UploadLink uploadLink = uploadLinks.get(repoId);
+		if (uploadLink != null && uploadLink.expiresAt.isAfter(Instant.now())) {
+			return uploadLink.url;
+		}
+		
 		String url = UriComponentsBuilder.fromHttpUrl(seafileUrl + "/api2/repos/" + repoId + "/upload-link/")
                 .queryParam("p", "/")
                 .toUriString();
-		
-		HttpHeaders headers = createJsonHeaders();
-        headers.set("authorization", "Token " + getAuthenticationToken());
-        
-        HttpEntity<String> entity = new HttpEntity<>(headers);
         
         try {
-        	ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-        	return SeafileUtil.getUploadLink(response.getBody());
+        	String link = withToken(token -> {
+        		HttpHeaders headers = createJsonHeaders();
+        		headers.set("authorization", "Token " + token);
+        		ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
+        				new HttpEntity<>(headers), String.class);
+        		return SeafileUtil.getUploadLink(response.getBody());
+        	});
+        	uploadLinks.put(repoId, new UploadLink(link, Instant.now().plusSeconds(uploadLinkTtlSeconds)));
+        	return link;
 		} catch (RestClientException e) {
 			log.error("Error getting upload link: ", e);
             throw new SeafileServiceException("Failed to get upload link", e);
 		}
 	}
 	
-	public String uploadFile(String repoId, String attachmentName) throws SeafileServiceException, JsonProcessingException {
-		String uploadUrl = getAnUploadLink(repoId) + "?ret-json=1";
-		
-		HttpHeaders headers = createJsonHeaders();
-        headers.set("authorization", "Token " + getAuthenticationToken());
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-        
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("parent_dir", "/");
-        body.add("file", new FileSystemResource(Paths.get("temp").resolve(attachmentName).toString()));
-        
-        HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<>(body, headers);
-        
-        try {
-        	ResponseEntity<String> response = restTemplate.exchange(uploadUrl, HttpMethod.POST, entity, String.class);
-        	return response.getBody();
+	public String uploadFile(String repoId, ReportOutput attachment) throws SeafileServiceException, JsonProcessingException {
+		try {
+			try {
+				return upload(getAnUploadLink(repoId), attachment);
+			} catch (HttpClientErrorException.Forbidden | HttpClientErrorException.NotFound e) {
+				// The cached upload link expired on the server before its TTL
+				log.info("Seafile upload link of repo {} rejected, requesting a new one", repoId);
+				uploadLinks.remove(repoId);
+				return upload(getAnUploadLink(repoId), attachment);
+			}
 		} catch (RestClientException e) {
 			log.error("Error uploading file: ", e);
             throw new SeafileServiceException("Failed to upload file", e);
 		}
 	}
 	
+	private String upload(String uploadLink, ReportOutput attachment) throws SeafileServiceException, JsonProcessingException {
+		String uploadUrl = uploadLink + "?ret-json=1";
+        
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("parent_dir", "/");
+        body.add("file", attachment.getResource());
+        
+        return withToken(token -> {
+        	HttpHeaders headers = createJsonHeaders();
+        	headers.set("authorization", "Token " + token);
+        	headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        	HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<>(body, headers);
+        	return restTemplate.exchange(uploadUrl, HttpMethod.POST, entity, String.class).getBody();
+        });
+	}
+	
 	private HttpHeaders createJsonHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
         return headers;
     }
+
+	@FunctionalInterface
+	private interface TokenCall<T> {
+		T execute(String token) throws JsonProcessingException;
+	}
+	
+	private static class UploadLink {
+		private final String url;
+		private final Instant expiresAt;
+		
+		UploadLink(String url, Instant expiresAt) {
+			this.url = url;
+			this.expiresAt = expiresAt;
+		}
+	}
 }
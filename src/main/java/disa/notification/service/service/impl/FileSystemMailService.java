@@ -1,24 +1,20 @@
 package disa.notification.service.service.impl;
 
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Optional;
 
 import javax.mail.MessagingException;
 
 import org.springframework.context.MessageSource;
-import org.springframework.core.io.ByteArrayResource;
 
 import disa.notification.service.entity.ImplementingPartner;
-import disa.notification.service.service.interfaces.LabResultSummary;
-import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.ReportMetrics;
+import disa.notification.service.service.interfaces.LabResultDataset;
 import disa.notification.service.service.interfaces.MailService;
-import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
 import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.FileReportOutput;
 import disa.notification.service.utils.SyncReport;
 import lombok.extern.log4j.Log4j2;
 
@@ -29,32 +25,43 @@ import lombok.extern.log4j.Log4j2;
 public class FileSystemMailService implements MailService {
 
     private MessageSource messageSource;
+    private ReportMetrics reportMetrics;
 
-    public FileSystemMailService(MessageSource messageSource) {
+    public FileSystemMailService(MessageSource messageSource, ReportMetrics reportMetrics) {
         this.messageSource = messageSource;
+        this.reportMetrics = reportMetrics;
     }
 
-    public void sendEmail(ImplementingPartner ip, DateInterval dateInterval, List<LabResultSummary> viralLoaders,
-            List<LabResults> viralLoadResults, List<LabResults> unsyncronizedViralLoadResults,
-            List<PendingHealthFacilitySummary> pendingHealthFacilitySummaries)
-            throws MessagingException, UnsupportedEncodingException {
-
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-            String start = formatter.format(dateInterval.getStartDateTime());
-            String end = formatter.format(dateInterval.getEndDateTime());
-            SyncReport syncReport = new SyncReport(messageSource, dateInterval);
-            ByteArrayResource xls = syncReport.getViralResultXLS(viralLoaders, viralLoadResults,
-                    unsyncronizedViralLoadResults, pendingHealthFacilitySummaries);
-
-            Path path = Paths.get("viral_Result_from_" + start + "_To_" + end + ".xlsx");
-            Files.write(path, xls.getByteArray());
-            log.info("File writen to path {}", path.toAbsolutePath());
+    @Override
+    public FileReportOutput getReportOutput(ImplementingPartner ip, DateInterval dateInterval) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+        String start = formatter.format(dateInterval.getStartDateTime());
+        String end = formatter.format(dateInterval.getEndDateTime());
+        return new FileReportOutput(
+                Paths.get("viral_Result_" + ip.getOrgName().toUpperCase() + "_from_" + start + "_To_" + end + ".xlsx"));
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    @Override
+    public Optional<FileReportOutput> generateReport(ImplementingPartner ip, DateInterval dateInterval,
+            LabResultDataset dataset) {
+        if (dataset.isEmpty()) {
+            return Optional.empty();
         }
+        FileReportOutput output = getReportOutput(ip, dateInterval);
+        SyncReport syncReport = new SyncReport(messageSource, dateInterval,
+                (sheet, nanos) -> reportMetrics.recordSheet(ip.getOrgName(), sheet, nanos));
+        syncReport.writeViralResultXLS(dataset, output);
+        return Optional.of(output);
+    }
 
+    @Override
+    public void uploadReport(ImplementingPartner ip, FileReportOutput report) {
+        // The report stays on the file system
+    }
+
+    @Override
+    public void sendReportEmail(ImplementingPartner ip, DateInterval dateInterval, FileReportOutput report) {
+        log.info("File writen to path {}", report.getPath().toAbsolutePath());
     }
 
     @Override
@@ -2,33 +2,32 @@ package disa.notification.service.service.impl;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
 import javax.mail.MessagingException;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.ResponseEntity;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
 import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.model.EmailDTO;
+import disa.notification.service.service.NotificationOutbox;
+import disa.notification.service.service.ReportMetrics;
 import disa.notification.service.service.SeafileService;
-import disa.notification.service.service.interfaces.LabResultSummary;
-import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.SeafileServiceException;
+import disa.notification.service.service.interfaces.LabResultDataset;
 import disa.notification.service.service.interfaces.MailService;
-import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
 import disa.notification.service.utils.DateInterval;
-import disa.notification.service.utils.ExcelUtil;
-import disa.notification.service.utils.MultipartUtil;
+import disa.notification.service.utils.FileReportOutput;
 import disa.notification.service.utils.SyncReport;
-import disa.notification.service.utils.TemplateEngineUtils;
 import lombok.extern.log4j.Log4j2;
 
 @Log4j2
@@ -36,58 +35,80 @@ public class MailServiceImpl implements MailService {
 
     public static final String EMAIL_SUBJECT = "Relatório de Sincronização de resultados lab de %s a %s";
 
-    private TemplateEngine templateEngine;
+    // Rendered bodies only depend on the template and the report dates, so the
+    // partners of a run share them
+    private static final int RENDERED_BODY_CACHE_SIZE = 16;
+
+    private final TemplateEngine templateEngine;
+    private final Map<String, String> renderedBodies = Collections
+            .synchronizedMap(new LinkedHashMap<String, String>(RENDERED_BODY_CACHE_SIZE, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > RENDERED_BODY_CACHE_SIZE;
+                }
+            });
     private final MessageSource messageSource;
     private final SeafileService seafileService;
+    private final NotificationOutbox notificationOutbox;
+    private final ReportMetrics reportMetrics;
 
-    public MailServiceImpl(TemplateEngine templateEngine, MessageSource messageSource, SeafileService seafileService) {
+    public MailServiceImpl(TemplateEngine templateEngine, MessageSource messageSource, SeafileService seafileService,
+            NotificationOutbox notificationOutbox, ReportMetrics reportMetrics) {
         this.templateEngine = templateEngine;
         this.messageSource = messageSource;
         this.seafileService = seafileService;
+        this.notificationOutbox = notificationOutbox;
+        this.reportMetrics = reportMetrics;
     }
 
     @Value("${spring.mail.username}")
     private String fromEmail;
 
-    @Value("${disa.notifier.rest.endpoint}")
-    private String disaNotifierEndPoint;
-
-    public void sendEmail(final ImplementingPartner ip, DateInterval dateInterval,
-            final List<LabResultSummary> viralLoaders, List<LabResults> viralLoadResults,
-            List<LabResults> unsyncronizedViralLoadResults,
-            List<PendingHealthFacilitySummary> pendingHealthFacilitySummaries) {
-
-        Context ctx = prepareEmailContext(viralLoaders, dateInterval);
-        String htmlContent = generateHtmlContent(ctx);
-        String attachmentName = generateAttachmentName(ip, dateInterval);
+    @Override
+    public FileReportOutput getReportOutput(ImplementingPartner ip, DateInterval dateInterval) {
+        return FileReportOutput.inTempDirectory(String.valueOf(ip.getId()), generateAttachmentName(ip, dateInterval));
+    }
 
-        try {
-            ByteArrayResource attachment = generateAttachment(dateInterval, viralLoaders, viralLoadResults,
-                    unsyncronizedViralLoadResults,
-                    pendingHealthFacilitySummaries);
+    @Override
+    public Optional<FileReportOutput> generateReport(ImplementingPartner ip, DateInterval dateInterval,
+            LabResultDataset dataset) {
+        if (dataset.isEmpty()) {
+            return Optional.empty();
+        }
+        FileReportOutput attachment = getReportOutput(ip, dateInterval);
+        SyncReport syncReport = new SyncReport(messageSource, dateInterval,
+                (sheet, nanos) -> reportMetrics.recordSheet(ip.getOrgName(), sheet, nanos));
+        syncReport.writeViralResultXLS(dataset, attachment);
+        return Optional.of(attachment);
+    }
 
-            if (attachment != null) {
-                processAttachmentAndSendEmail(ip, dateInterval, attachment, htmlContent, attachmentName);
-            }
+    @Override
+    public void uploadReport(ImplementingPartner ip, FileReportOutput report)
+            throws SeafileServiceException, IOException {
+        seafileService.uploadFile(ip.getRepoId(), report);
+    }
 
-        } catch (IOException e) {
-            log.error(e);
-        }
+    @Override
+    public void sendReportEmail(ImplementingPartner ip, DateInterval dateInterval, FileReportOutput report)
+            throws MessagingException, UnsupportedEncodingException {
+        String htmlContent = renderBody("index.html", dateInterval);
+        sendEmailHelper(ip, ip.getMailList().split(","), htmlContent, "notification", report.getName(),
+                formatDate(dateInterval.getStartDateTime()), formatDate(dateInterval.getEndDateTime()),
+                ip.getRepoLink(), Boolean.TRUE);
+        deleteAttachment(report);
     }
 
     public void sendNoResultsEmail(ImplementingPartner ip, DateInterval dateInterval)
             throws MessagingException, UnsupportedEncodingException {
 
-        Context ctx = new Context(new Locale("pt", "BR"));
         String startDateFormatted = formatDate(dateInterval.getStartDateTime());
         String endDateFormatted = formatDate(dateInterval.getEndDateTime());
-        ctx.setVariable("fromDate", startDateFormatted);
-        ctx.setVariable("toDate", endDateFormatted);
 
         String[] mailList = ip.getMailListItems();
-        templateEngine = TemplateEngineUtils.getTemplateEngine();
-        final String htmlContent = this.templateEngine.process("noResults.html", ctx);
-        sendEmailHelper(mailList, htmlContent, "notification", null, startDateFormatted, endDateFormatted,
+        final String htmlContent = renderBody("noResults.html", dateInterval);
+        sendEmailHelper(ip, mailList, htmlContent, "notification", null, startDateFormatted, endDateFormatted,
                 ip.getRepoLink(), Boolean.FALSE);
     }
 
@@ -95,42 +116,34 @@ public class MailServiceImpl implements MailService {
         return localDate.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
     }
 
-    private void sendEmailHelper(String[] mailList, String htmlContent, String module,
+    private void sendEmailHelper(ImplementingPartner ip, String[] mailList, String htmlContent, String module,
             String attachmentName, String startDateFormatted, String endDateFormatted, String repoLink,
             Boolean resultFlag) {
 
-        String subject = String.format(EMAIL_SUBJECT, startDateFormatted, endDateFormatted);
-        ResponseEntity<String> emailResult = null;
-
-        try {
-
-            emailResult = MultipartUtil.sendMultipartRequest(disaNotifierEndPoint, mailList,
-                    subject, htmlContent, module, attachmentName, startDateFormatted, endDateFormatted, repoLink,
-                    resultFlag);
-
-            if (emailResult != null && emailResult.getStatusCode().is2xxSuccessful()) {
-                log.info("Email sent successfully");
-            } else if (emailResult != null) {
-                log.error("Failed to send email. Response code: " + emailResult.getStatusCode());
-            }
-
-        } catch (IOException e) {
-            log.error(e);
-        }
-
+        EmailDTO emailDto = new EmailDTO();
+        emailDto.setTo(mailList);
+        emailDto.setSubject(String.format(EMAIL_SUBJECT, startDateFormatted, endDateFormatted));
+        emailDto.setBody(htmlContent);
+        emailDto.setModule(module);
+        emailDto.setStartDate(startDateFormatted);
+        emailDto.setEndDate(endDateFormatted);
+        emailDto.setRepoLink(repoLink);
+        emailDto.setResultFlag(resultFlag);
+
+        // One email per implementing partner and report interval
+        String idempotencyKey = ip.getId() + "_" + startDateFormatted + "_" + endDateFormatted;
+        notificationOutbox.send(ip.getOrgName(), idempotencyKey, emailDto, attachmentName);
     }
 
-    private Context prepareEmailContext(List<LabResultSummary> viralLoaders, DateInterval dateInterval) {
-        final Context ctx = new Context(new Locale("pt", "BR"));
-        ctx.setVariable("fromDate", formatDate(dateInterval.getStartDateTime()));
-        ctx.setVariable("toDate", formatDate(dateInterval.getEndDateTime()));
-        ctx.setVariable("viralLoaders", viralLoaders);
-        return ctx;
-    }
-
-    private String generateHtmlContent(Context ctx) {
-        templateEngine = TemplateEngineUtils.getTemplateEngine();
-        return templateEngine.process("index.html", ctx);
+    private String renderBody(String template, DateInterval dateInterval) {
+        String fromDate = formatDate(dateInterval.getStartDateTime());
+        String toDate = formatDate(dateInterval.getEndDateTime());
+        return renderedBodies.computeIfAbsent(template + "|" + fromDate + "|" + toDate, key -> {
+            final Context ctx = new Context(new Locale("pt", "BR"));
+            ctx.setVariable("fromDate", fromDate);
+            ctx.setVariable("toDate", toDate);
+            return templateEngine.process(template, ctx);
+        });
     }
 
     private String generateAttachmentName(ImplementingPartner ip, DateInterval dateInterval) {
@@ -139,33 +152,11 @@ public class MailServiceImpl implements MailService {
                 + formatDate(dateInterval.getEndDateTime()) + ".xlsx";
     }
 
-    private ByteArrayResource generateAttachment(DateInterval dateInterval, List<LabResultSummary> viralLoaders,
-            List<LabResults> viralLoadResults,
-            List<LabResults> unsyncronizedViralLoadResults,
-            List<PendingHealthFacilitySummary> pendingHealthFacilitySummaries) throws IOException {
-        SyncReport syncReport = new SyncReport(messageSource, dateInterval);
-        return syncReport.getViralResultXLS(viralLoaders, viralLoadResults,
-                unsyncronizedViralLoadResults,
-                pendingHealthFacilitySummaries);
-    }
-
-    private void processAttachmentAndSendEmail(ImplementingPartner ip, DateInterval dateInterval,
-            ByteArrayResource attachment, String htmlContent,
-            String attachmentName) {
-        String[] mailList = ip.getMailList().split(",");
+    private void deleteAttachment(FileReportOutput attachment) {
         try {
-            ExcelUtil.saveWorkbook(attachment, attachmentName);
-            seafileService.uploadFile(ip.getRepoId(), attachmentName);
-            sendEmailHelper(mailList, htmlContent, "notification",
-                    attachmentName, formatDate(dateInterval.getStartDateTime()),
-                    formatDate(dateInterval.getEndDateTime()), ip.getRepoLink(), Boolean.TRUE);
-            deleteTemporaryFile(attachmentName);
-        } catch (Exception e) {
-            log.error("Error processing attachment and sending email", e);
+            attachment.delete();
+        } catch (IOException e) {
+            log.error(e);
         }
     }
-
-    private void deleteTemporaryFile(String attachmentName) throws IOException {
-        Files.deleteIfExists(Paths.get("temp").resolve(Paths.get(attachmentName)));
-    }
 }
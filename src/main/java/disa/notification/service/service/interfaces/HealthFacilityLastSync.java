@@ -0,0 +1,12 @@
+package disa.notification.service.service.interfaces;
+
+import java.time.LocalDateTime;
+
+public interface HealthFacilityLastSync {
+
+    String getRequestingDistrictName();
+
+    String getHealthFacilityLabCode();
+
+    LocalDateTime getLastSyncDate();
+}
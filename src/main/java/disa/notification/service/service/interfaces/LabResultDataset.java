@@ -0,0 +1,37 @@
+package disa.notification.service.service.interfaces;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The results of an implementing partner needed to compose a report.
+ */
+public interface LabResultDataset {
+
+    /**
+     * Reads the results once, passing those received in the report interval and
+     * those pending for more than {@code app.report.pendingDays} days to the
+     * given consumers. A result can be passed to both. The consumers must not
+     * keep the results, they can be views reused for the next result.
+     */
+    void forEachResult(Consumer<LabResults> received, Consumer<LabResults> pending);
+
+    /**
+     * Available after {@link #forEachResult(Consumer, Consumer)}.
+     */
+    List<LabResultSummary> getResultSummaries();
+
+    /**
+     * Available after {@link #forEachResult(Consumer, Consumer)}.
+     */
+    List<PendingHealthFacilitySummary> getPendingHealthFacilitySummaries();
+
+    /**
+     * Whether there is nothing to report, it can be called before
+     * {@link #forEachResult(Consumer, Consumer)} to skip composing an empty
+     * report.
+     */
+    default boolean isEmpty() {
+        return getResultSummaries().isEmpty() && getPendingHealthFacilitySummaries().isEmpty();
+    }
+}
@@ -2,6 +2,9 @@ package disa.notification.service.service.interfaces;
 
 import java.time.LocalDateTime;
 
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+
 
 public interface LabResults {
 
@@ -31,4 +34,20 @@ public interface LabResults {
 
      LocalDateTime getUpdatedAt();
 
+     /**
+      * @return the status, null when {@link #getViralLoadStatus()} is not a
+      *         {@link ViralLoadStatus}
+      */
+     default ViralLoadStatus getViralLoadStatusValue() {
+          return ViralLoadStatus.parse(getViralLoadStatus());
+     }
+
+     /**
+      * @return the cause, null when {@link #getNotProcessingCause()} is not a
+      *         {@link NotProcessingCause}
+      */
+     default NotProcessingCause getNotProcessingCauseValue() {
+          return NotProcessingCause.parse(getNotProcessingCause());
+     }
+
 }
@@ -1,18 +1,45 @@
 package disa.notification.service.service.interfaces;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.util.List;
+import java.util.Optional;
 
 import javax.mail.MessagingException;
 
 import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.service.SeafileServiceException;
 import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.FileReportOutput;
 
+/**
+ * The steps to deliver the report of an implementing partner, run in order by
+ * the report pipeline.
+ */
 public interface MailService {
 
-    void sendEmail(ImplementingPartner ip, DateInterval dateInterval, final List<LabResultSummary> viralLoaders,
-            List<LabResults> viralLoadResults, List<LabResults> unsyncronizedViralLoadResults,
-            List<PendingHealthFacilitySummary> pendingHealthFacilitySummaries)
+    /**
+     * Where the report of the implementing partner for the interval is
+     * generated.
+     */
+    FileReportOutput getReportOutput(ImplementingPartner ip, DateInterval dateInterval);
+
+    /**
+     * Generates the report from the dataset to {@link #getReportOutput}.
+     *
+     * @return the report, or empty when the dataset turns out to have no results
+     */
+    Optional<FileReportOutput> generateReport(ImplementingPartner ip, DateInterval dateInterval,
+            LabResultDataset dataset);
+
+    /**
+     * Makes the report available to the implementing partner.
+     */
+    void uploadReport(ImplementingPartner ip, FileReportOutput report) throws SeafileServiceException, IOException;
+
+    /**
+     * Notifies the implementing partner of an uploaded report.
+     */
+    void sendReportEmail(ImplementingPartner ip, DateInterval dateInterval, FileReportOutput report)
             throws MessagingException, UnsupportedEncodingException;
 
     void sendNoResultsEmail(ImplementingPartner ip, DateInterval dateInterval) throws MessagingException, UnsupportedEncodingException;
@@ -0,0 +1,14 @@
+package disa.notification.service.service.interfaces;
+
+import java.time.LocalDateTime;
+
+public interface ReportFingerprint {
+
+    Long getResultCount();
+
+    Long getPendingCount();
+
+    LocalDateTime getLastCreatedAt();
+
+    LocalDateTime getLastUpdatedAt();
+}
@@ -0,0 +1,338 @@
+package disa.notification.service.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.LabResults;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Results kept in memory column by column. Health facilities, with their
+ * province and district, types of result and patient names repeat across the
+ * results, so each distinct value is kept once in a dictionary and the columns
+ * hold its code. Statuses and causes are kept as enum ordinals, dates as epoch
+ * seconds and request ids and NIDs as UTF-8 bytes.
+ */
+@Log4j2
+public class ColumnarLabResults {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final byte RECEIVED = 1;
+    private static final byte PENDING = 2;
+
+    private static final int PROVINCE = 0;
+    private static final int DISTRICT = 1;
+    private static final int FACILITY_CODE = 2;
+    private static final int FACILITY_NAME = 3;
+
+    private final Dictionary<String> dictionary = new Dictionary<>();
+    private final Dictionary<List<String>> facilityDictionary = new Dictionary<>();
+    private final EnumCodes<ViralLoadStatus> statusCodes = new EnumCodes<>(ViralLoadStatus.values());
+    private final EnumCodes<NotProcessingCause> causeCodes = new EnumCodes<>(NotProcessingCause.values());
+    private final TextColumn requestIds = new TextColumn();
+    private final TextColumn nids = new TextColumn();
+
+    private int[] firstNames = new int[INITIAL_CAPACITY];
+    private int[] lastNames = new int[INITIAL_CAPACITY];
+    private int[] facilities = new int[INITIAL_CAPACITY];
+    private int[] typesOfResult = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private byte[] causes = new byte[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private long[] updatedAt = new long[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Copies the result, a result can be both received in the report interval
+     * and pending.
+     *
+     * @return the index of the result
+     */
+    public int add(LabResults result, boolean received, boolean pending) {
+        if (size == flags.length) {
+            grow();
+        }
+        int index = size++;
+        requestIds.add(result.getRequestId());
+        nids.add(result.getNID());
+        firstNames[index] = dictionary.encode(result.getFirstName());
+        lastNames[index] = dictionary.encode(result.getLastName());
+        facilities[index] = facilityDictionary.encode(Arrays.asList(result.getRequestingProvinceName(),
+                result.getRequestingDistrictName(), result.getHealthFacilityLabCode(),
+                result.getRequestingFacilityName()));
+        typesOfResult[index] = dictionary.encode(result.getTypeOfResult());
+        statuses[index] = statusCodes.encode(result.getViralLoadStatusValue(), result.getViralLoadStatus(), index);
+        causes[index] = causeCodes.encode(result.getNotProcessingCauseValue(), result.getNotProcessingCause(), index);
+        createdAt[index] = toEpochSecond(result.getCreatedAt());
+        updatedAt[index] = toEpochSecond(result.getUpdatedAt());
+        flags[index] = (byte) ((received ? RECEIVED : 0) | (pending ? PENDING : 0));
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A view of the result at the index, its values are read from the columns on
+     * each call.
+     */
+    public LabResults get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        Row row = new Row();
+        row.index = index;
+        return row;
+    }
+
+    /**
+     * The consumer is passed the same view moved to each result, it must not
+     * keep it.
+     */
+    public void forEachReceived(Consumer<LabResults> consumer) {
+        forEach(RECEIVED, consumer);
+    }
+
+    /**
+     * The consumer is passed the same view moved to each result, it must not
+     * keep it.
+     */
+    public void forEachPending(Consumer<LabResults> consumer) {
+        forEach(PENDING, consumer);
+    }
+
+    private void forEach(byte flag, Consumer<LabResults> consumer) {
+        Row row = new Row();
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & flag) != 0) {
+                row.index = i;
+                consumer.accept(row);
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = flags.length + (flags.length >> 1);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        lastNames = Arrays.copyOf(lastNames, capacity);
+        facilities = Arrays.copyOf(facilities, capacity);
+        typesOfResult = Arrays.copyOf(typesOfResult, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        causes = Arrays.copyOf(causes, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        updatedAt = Arrays.copyOf(updatedAt, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    /**
+     * Fractions of a second are not kept, the report only shows dates.
+     */
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toEpochSecond(ZoneOffset.UTC) : NO_DATE;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return epochSecond != NO_DATE ? LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC) : null;
+    }
+
+    private class Row implements LabResults {
+        private int index;
+
+        public String getNID() {
+            return nids.get(index);
+        }
+
+        public String getRequestId() {
+            return requestIds.get(index);
+        }
+
+        public String getFirstName() {
+            return dictionary.decode(firstNames[index]);
+        }
+
+        public String getLastName() {
+            return dictionary.decode(lastNames[index]);
+        }
+
+        public String getHealthFacilityLabCode() {
+            return getFacility(FACILITY_CODE);
+        }
+
+        public String getTypeOfResult() {
+            return dictionary.decode(typesOfResult[index]);
+        }
+
+        public String getRequestingFacilityName() {
+            return getFacility(FACILITY_NAME);
+        }
+
+        public String getViralLoadStatus() {
+            return statusCodes.decode(statuses[index], index);
+        }
+
+        public String getNotProcessingCause() {
+            return causeCodes.decode(causes[index], index);
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return toLocalDateTime(createdAt[index]);
+        }
+
+        public String getRequestingProvinceName() {
+            return getFacility(PROVINCE);
+        }
+
+        public String getRequestingDistrictName() {
+            return getFacility(DISTRICT);
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return toLocalDateTime(updatedAt[index]);
+        }
+
+        private String getFacility(int field) {
+            return facilityDictionary.decode(facilities[index]).get(field);
+        }
+
+        public ViralLoadStatus getViralLoadStatusValue() {
+            return statusCodes.toEnum(statuses[index]);
+        }
+
+        public NotProcessingCause getNotProcessingCauseValue() {
+            return causeCodes.toEnum(causes[index]);
+        }
+    }
+
+    /**
+     * Every distinct value of the columns, null is -1.
+     */
+    private static class Dictionary<T> {
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int encode(T value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        T decode(int code) {
+            return code >= 0 ? values.get(code) : null;
+        }
+    }
+
+    /**
+     * The ordinal of the enum constant, null is -1. Values that are not a constant
+     * are kept as they were read, with the codes after the ordinals. Once those
+     * codes run out the values share the last code and are kept by result.
+     */
+    private static class EnumCodes<E extends Enum<E>> {
+        private static final byte OVERFLOW = Byte.MAX_VALUE;
+
+        private final E[] constants;
+        private final List<String> others = new ArrayList<>();
+        private final Map<Integer, String> overflow = new HashMap<>();
+
+        EnumCodes(E[] constants) {
+            this.constants = constants;
+        }
+
+        byte encode(E constant, String value, int index) {
+            if (constant != null) {
+                return (byte) constant.ordinal();
+            }
+            if (value == null) {
+                return -1;
+            }
+            int other = others.indexOf(value);
+            if (other < 0) {
+                if (constants.length + others.size() == OVERFLOW) {
+                    if (overflow.isEmpty()) {
+                        log.warn("More than {} distinct unknown {} values, the others are kept by result",
+                                others.size(), constants[0].getDeclaringClass().getSimpleName());
+                    }
+                    overflow.put(index, value);
+                    return OVERFLOW;
+                }
+                other = others.size();
+                others.add(value);
+            }
+            return (byte) (constants.length + other);
+        }
+
+        E toEnum(byte code) {
+            return code >= 0 && code < constants.length ? constants[code] : null;
+        }
+
+        String decode(byte code, int index) {
+            if (code < 0) {
+                return null;
+            }
+            if (code == OVERFLOW) {
+                return overflow.get(index);
+            }
+            return code < constants.length ? constants[code].name() : others.get(code - constants.length);
+        }
+    }
+
+    /**
+     * Strings stored one after the other as UTF-8 bytes, with the end of each one.
+     * The end of a null string is stored as its complement.
+     */
+    private static class TextColumn {
+        private byte[] bytes = new byte[INITIAL_CAPACITY * 16];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        private int length;
+        private int size;
+
+        void add(String value) {
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size + (size >> 1));
+            }
+            if (value == null) {
+                ends[size++] = ~length;
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (length + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + encoded.length, bytes.length + (bytes.length >> 1)));
+            }
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+            ends[size++] = length;
+        }
+
+        String get(int index) {
+            if (ends[index] < 0) {
+                return null;
+            }
+            int start = index > 0 ? end(index - 1) : 0;
+            return new String(bytes, start, ends[index] - start, StandardCharsets.UTF_8);
+        }
+
+        private int end(int index) {
+            return ends[index] < 0 ? ~ends[index] : ends[index];
+        }
+    }
+}
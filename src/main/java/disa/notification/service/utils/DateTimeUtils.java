@@ -26,6 +26,15 @@ public class DateTimeUtils {
         return DateInterval.of(sundayLastWeek.atStartOfDay(), saturdayLastWeek.atTime(HOUR_23, MINUTE_59, SECOND_59));
     }
 
+    /**
+     * Results created before the returned date are pending for more than the
+     * given days, the same as {@code DATEDIFF(CURRENT_TIMESTAMP, CREATED_AT) > days}
+     * but comparable against an index on the creation date.
+     */
+    public static LocalDateTime getPendingCutoff(int days) {
+        return LocalDate.now().minusDays(days).atStartOfDay();
+    }
+
     public static DateInterval getCurrentWeekInterVal() {
         LocalDateTime now = LocalDateTime.now();
         TemporalField dayOfWeek = WeekFields.of(Locale.US).dayOfWeek();
@@ -0,0 +1,59 @@
+package disa.notification.service.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * A report written directly to a file on disk.
+ */
+public class FileReportOutput implements ReportOutput {
+
+    public static final String TEMP_DIRECTORY = "temp";
+
+    private final Path path;
+
+    public FileReportOutput(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @param namespace sub directory of the temp directory, reports generated
+     *                  concurrently must use distinct namespaces
+     */
+    public static FileReportOutput inTempDirectory(String namespace, String fileName) {
+        return new FileReportOutput(Paths.get(TEMP_DIRECTORY, namespace).resolve(fileName));
+    }
+
+    @Override
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return Files.newOutputStream(path);
+    }
+
+    @Override
+    public Resource getResource() {
+        return new FileSystemResource(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,72 @@
+package disa.notification.service.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResultDataset;
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
+
+/**
+ * A dataset whose results were already read and are kept in memory, its
+ * summaries are available before the results are iterated. The results are
+ * copied to {@link ColumnarLabResults}.
+ */
+public class InMemoryLabResultDataset implements LabResultDataset {
+
+    private final ColumnarLabResults results = new ColumnarLabResults();
+
+    private final LabResultAggregator aggregator = new LabResultAggregator();
+
+    private final List<LabResultSummary> resultSummaries;
+
+    public InMemoryLabResultDataset() {
+        this.resultSummaries = null;
+    }
+
+    /**
+     * @param resultSummaries summaries of the received results computed elsewhere,
+     *                        such as the daily rollups, the received results are
+     *                        then not aggregated
+     */
+    public InMemoryLabResultDataset(List<LabResultSummary> resultSummaries) {
+        this.resultSummaries = resultSummaries;
+    }
+
+    /**
+     * @param received whether the result was received in the report interval
+     * @param pending  whether the result is listed as pending
+     */
+    public void add(LabResults result, boolean received, boolean pending) {
+        LabResults row = results.get(results.add(result, received, pending));
+        if (received && resultSummaries == null) {
+            aggregator.addReceived(row);
+        }
+        if (pending) {
+            aggregator.addPending(row);
+        }
+    }
+
+    public void addLastSync(HealthFacilityLastSync lastSync) {
+        aggregator.addLastSync(lastSync);
+    }
+
+    @Override
+    public void forEachResult(Consumer<LabResults> receivedConsumer, Consumer<LabResults> pendingConsumer) {
+        results.forEachReceived(receivedConsumer);
+        results.forEachPending(pendingConsumer);
+    }
+
+    @Override
+    public List<LabResultSummary> getResultSummaries() {
+        return resultSummaries != null ? new ArrayList<>(resultSummaries) : aggregator.getResultSummaries();
+    }
+
+    @Override
+    public List<PendingHealthFacilitySummary> getPendingHealthFacilitySummaries() {
+        return aggregator.getPendingHealthFacilitySummaries();
+    }
+}
@@ -0,0 +1,129 @@
+package disa.notification.service.utils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
+import lombok.Getter;
+
+/**
+ * Builds the health facility summaries of a report from the individual results,
+ * so they are computed in the same pass that writes the results.
+ */
+public class LabResultAggregator {
+
+    private final Map<List<String>, ResultSummary> resultSummaries = new LinkedHashMap<>();
+
+    private final Map<List<String>, PendingSummary> pendingSummaries = new LinkedHashMap<>();
+
+    private final Map<List<String>, LocalDateTime> lastSyncDates = new LinkedHashMap<>();
+
+    public void addReceived(LabResults result) {
+        List<String> key = Arrays.asList(result.getRequestingProvinceName(), result.getRequestingDistrictName(),
+                result.getRequestingFacilityName(), result.getHealthFacilityLabCode(), result.getTypeOfResult());
+        resultSummaries.computeIfAbsent(key, k -> new ResultSummary(result)).add(result);
+    }
+
+    public void addPending(LabResults result) {
+        List<String> key = Arrays.asList(result.getRequestingProvinceName(), result.getRequestingDistrictName(),
+                result.getRequestingFacilityName(), result.getHealthFacilityLabCode());
+        pendingSummaries.computeIfAbsent(key, k -> new PendingSummary(result)).totalPending++;
+    }
+
+    public void addLastSync(HealthFacilityLastSync lastSync) {
+        lastSyncDates.put(Arrays.asList(lastSync.getRequestingDistrictName(), lastSync.getHealthFacilityLabCode()),
+                lastSync.getLastSyncDate());
+    }
+
+    public boolean hasPendingResults() {
+        return !pendingSummaries.isEmpty();
+    }
+
+    public List<LabResultSummary> getResultSummaries() {
+        return new ArrayList<>(resultSummaries.values());
+    }
+
+    public List<PendingHealthFacilitySummary> getPendingHealthFacilitySummaries() {
+        List<PendingHealthFacilitySummary> summaries = new ArrayList<>(pendingSummaries.size());
+        for (PendingSummary summary : pendingSummaries.values()) {
+            summary.lastSyncDate = lastSyncDates
+                    .get(Arrays.asList(summary.requestingDistrictName, summary.healthFacilityLabCode));
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    @Getter
+    private static class ResultSummary implements LabResultSummary {
+        private final String requestingProvinceName;
+        private final String requestingDistrictName;
+        private final String healthFacilityLabCode;
+        private final String typeOfResult;
+        private final String facilityName;
+        private int totalReceived;
+        private int totalPending;
+        private int processed;
+        private int notProcessedInvalidResult;
+        private int notProcessedNidNotFount;
+        private int notProcessedDuplicateNid;
+        private int notProcessedDuplicatedRequestId;
+
+        ResultSummary(LabResults result) {
+            requestingProvinceName = result.getRequestingProvinceName();
+            requestingDistrictName = result.getRequestingDistrictName();
+            healthFacilityLabCode = result.getHealthFacilityLabCode();
+            typeOfResult = result.getTypeOfResult();
+            facilityName = result.getRequestingFacilityName();
+        }
+
+        void add(LabResults result) {
+            totalReceived++;
+            ViralLoadStatus status = result.getViralLoadStatusValue();
+            if (status == ViralLoadStatus.PROCESSED) {
+                processed++;
+            } else if (status == ViralLoadStatus.PENDING) {
+                totalPending++;
+            } else if (status == ViralLoadStatus.NOT_PROCESSED) {
+                addNotProcessed(result.getNotProcessingCauseValue());
+            }
+        }
+
+        private void addNotProcessed(NotProcessingCause cause) {
+            if (cause == NotProcessingCause.NID_NOT_FOUND) {
+                notProcessedNidNotFount++;
+            } else if (cause == NotProcessingCause.INVALID_RESULT) {
+                notProcessedInvalidResult++;
+            } else if (cause == NotProcessingCause.DUPLICATE_NID) {
+                notProcessedDuplicateNid++;
+            } else if (cause == NotProcessingCause.DUPLICATED_REQUEST_ID) {
+                notProcessedDuplicatedRequestId++;
+            }
+        }
+    }
+
+    @Getter
+    private static class PendingSummary implements PendingHealthFacilitySummary {
+        private final String requestingProvinceName;
+        private final String requestingDistrictName;
+        private final String healthFacilityLabCode;
+        private final String facilityName;
+        private int totalPending;
+        private LocalDateTime lastSyncDate;
+
+        PendingSummary(LabResults result) {
+            requestingProvinceName = result.getRequestingProvinceName();
+            requestingDistrictName = result.getRequestingDistrictName();
+            healthFacilityLabCode = result.getHealthFacilityLabCode();
+            facilityName = result.getRequestingFacilityName();
+        }
+    }
+}
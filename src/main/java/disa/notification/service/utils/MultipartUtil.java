@@ -1,7 +1,5 @@
 package disa.notification.service.utils;
 
-import java.io.IOException;
-
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -18,14 +16,20 @@ import lombok.extern.log4j.Log4j2;
 @Log4j2
 public class MultipartUtil {
 
-	public static ResponseEntity<String> sendMultipartRequest(String url, String[] mailList,
-			String subject, String body, String module, String attachmentName, String startDate,
-			String endDate, String repoLink, Boolean resultFlag) throws IOException {
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
-		RestTemplate restTemplate = new RestTemplate();
+	/**
+	 * Posts the email to the notifier.
+	 *
+	 * @return the response, or null when the notifier could not be reached or
+	 *         answered with an error
+	 */
+	public static ResponseEntity<String> sendMultipartRequest(RestTemplate restTemplate, String url,
+			EmailDTO emailDto, String idempotencyKey) {
 
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+		headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
 
 		MultiValueMap<String, Object> requestBody = new LinkedMultiValueMap<>();
 
@@ -33,17 +37,6 @@ public class MultipartUtil {
 		HttpHeaders jsonHeaders = new HttpHeaders();
 		jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
 
-		EmailDTO emailDto = new EmailDTO();
-		emailDto.setTo(mailList);
-		emailDto.setSubject(subject);
-		emailDto.setBody(body);
-		emailDto.setModule(module);
-		emailDto.setStartDate(startDate);
-		emailDto.setEndDate(endDate);
-		emailDto.setEndDate(endDate);
-		emailDto.setRepoLink(repoLink);
-		emailDto.setResultFlag(resultFlag); 
-
 		HttpEntity<EmailDTO> jsonEntity = new HttpEntity<>(emailDto, jsonHeaders);
 		requestBody.add("data", jsonEntity);
 
@@ -0,0 +1,19 @@
+package disa.notification.service.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Destination where a generated report is written once and read back from when
+ * it has to be delivered.
+ */
+public interface ReportOutput {
+
+    String getName();
+
+    OutputStream openOutputStream() throws IOException;
+
+    Resource getResource();
+}
@@ -0,0 +1,94 @@
+package disa.notification.service.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * A workbook template read and prepared once: the empty formatted rows below
+ * the header are removed and the formula cells are recorded. Each report gets
+ * its own workbook parsed from the prepared bytes in memory.
+ */
+public class ReportTemplate {
+
+    private final byte[] content;
+    private final List<CellReference> formulaCells;
+
+    private ReportTemplate(byte[] content, List<CellReference> formulaCells) {
+        this.content = content;
+        this.formulaCells = formulaCells;
+    }
+
+    /**
+     * @param firstDataRows the first row available for data by sheet index, rows
+     *                      from it on are removed from the template
+     */
+    public static ReportTemplate load(String resource, Map<Integer, Integer> firstDataRows) throws IOException {
+        try (InputStream in = new ClassPathResource(resource).getInputStream();
+                XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+            // The streaming workbook can only append rows after the last row
+            // already present on the sheet
+            firstDataRows.forEach((sheet, firstRow) -> clearRowsFrom(workbook.getSheetAt(sheet), firstRow));
+            List<CellReference> formulaCells = findFormulaCells(workbook);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            return new ReportTemplate(out.toByteArray(), formulaCells);
+        }
+    }
+
+    public XSSFWorkbook newWorkbook() throws IOException {
+        return new XSSFWorkbook(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Evaluates only the formula cells recorded from the template, instead of
+     * walking every cell of the workbook.
+     */
+    public void evaluateFormulaCells(XSSFWorkbook workbook) {
+        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        for (CellReference reference : formulaCells) {
+            Cell cell = workbook.getSheet(reference.getSheetName()).getRow(reference.getRow())
+                    .getCell(reference.getCol());
+            evaluator.evaluateFormulaCell(cell);
+        }
+    }
+
+    private static void clearRowsFrom(XSSFSheet sheet, int firstRow) {
+        for (int i = sheet.getLastRowNum(); i >= firstRow; i--) {
+            Row row = sheet.getRow(i);
+            if (row != null) {
+                sheet.removeRow(row);
+            }
+        }
+    }
+
+    private static List<CellReference> findFormulaCells(XSSFWorkbook workbook) {
+        List<CellReference> cells = new ArrayList<>();
+        for (Sheet sheet : workbook) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellTypeEnum() == CellType.FORMULA) {
+                        cells.add(new CellReference(sheet.getSheetName(), row.getRowNum(), cell.getColumnIndex(),
+                                false, false));
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(cells);
+    }
+}
@@ -0,0 +1,123 @@
+package disa.notification.service.utils;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Writes a sheet row from a value, described once as one accessor per column
+ * of the sheet's {@link XLSColumnConstants} enum. Writing a row only reads the
+ * value, styles are shared by every row.
+ */
+public class RowWriter<T> {
+
+    // Width units are 1/256 of a character, capped as Excel does
+    private static final int MAX_COLUMN_WIDTH = 255 * 256;
+
+    private interface CellWriter<T> {
+        void write(Cell cell, T value);
+    }
+
+    private final CellWriter<T>[] columns;
+    private final CellStyle[] styles;
+    private int[] maxLengths;
+
+    @SuppressWarnings("unchecked")
+    public RowWriter(Class<? extends Enum<?>> columnEnum) {
+        int columnCount = columnEnum.getEnumConstants().length;
+        columns = new CellWriter[columnCount];
+        styles = new CellStyle[columnCount];
+    }
+
+    public RowWriter<T> text(Enum<?> column, Function<T, String> accessor) {
+        columns[column.ordinal()] = (cell, value) -> cell.setCellValue(accessor.apply(value));
+        return this;
+    }
+
+    public RowWriter<T> number(Enum<?> column, ToDoubleFunction<T> accessor) {
+        columns[column.ordinal()] = (cell, value) -> cell.setCellValue(accessor.applyAsDouble(value));
+        return this;
+    }
+
+    public RowWriter<T> number(Enum<?> column, ToDoubleFunction<T> accessor, CellStyle style) {
+        styles[column.ordinal()] = style;
+        return number(column, accessor);
+    }
+
+    public RowWriter<T> text(Enum<?> column, Function<T, String> accessor, CellStyle style) {
+        styles[column.ordinal()] = style;
+        return text(column, accessor);
+    }
+
+    /**
+     * Keeps the length of the longest text written on each column, to size the
+     * columns with {@link #applyColumnWidths(Sheet)} once the rows are written.
+     */
+    public RowWriter<T> trackColumnWidths() {
+        maxLengths = new int[columns.length];
+        return this;
+    }
+
+    /**
+     * Includes the text of a row already on the sheet, such as the header of the
+     * template, in the tracked widths. Merged cells span several columns and are
+     * skipped, as {@code Sheet.autoSizeColumn} does.
+     */
+    public void trackColumnWidths(Row row) {
+        if (row == null) {
+            return;
+        }
+        for (Cell cell : row) {
+            int i = cell.getColumnIndex();
+            if (i < maxLengths.length && cell.getCellTypeEnum() == CellType.STRING && !isMerged(cell)) {
+                maxLengths[i] = Math.max(maxLengths[i], cell.getStringCellValue().length());
+            }
+        }
+    }
+
+    private static boolean isMerged(Cell cell) {
+        for (CellRangeAddress region : cell.getSheet().getMergedRegions()) {
+            if (region.isInRange(cell.getRowIndex(), cell.getColumnIndex())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sizes the columns to their longest text plus one character, as
+     * {@code Sheet.autoSizeColumn} would without measuring every cell again.
+     * Columns without text keep their width.
+     */
+    public void applyColumnWidths(Sheet sheet) {
+        for (int i = 0; i < maxLengths.length; i++) {
+            if (maxLengths[i] > 0) {
+                sheet.setColumnWidth(i, Math.min((maxLengths[i] + 1) * 256, MAX_COLUMN_WIDTH));
+            }
+        }
+    }
+
+    /**
+     * Creates every column of the row, those without an accessor are left blank.
+     */
+    public void write(Row row, T value) {
+        for (int i = 0; i < columns.length; i++) {
+            Cell cell = row.createCell(i);
+            if (columns[i] != null) {
+                columns[i].write(cell, value);
+                if (maxLengths != null && cell.getCellTypeEnum() == CellType.STRING) {
+                    maxLengths[i] = Math.max(maxLengths[i], cell.getStringCellValue().length());
+                }
+            }
+            if (styles[i] != null) {
+                cell.setCellStyle(styles[i]);
+            }
+        }
+    }
+}
@@ -6,6 +6,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class SeafileUtil {
 
+    // Thread safe once configured, shared by every parse
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     public static String extractJson(String response) {
 
         int startIndex = response.indexOf("{");
@@ -19,8 +22,7 @@ public class SeafileUtil {
     }
 
     public static JsonNode parseJson(String response) throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.readTree(response);
+        return OBJECT_MAPPER.readTree(response);
     }
 
     public static String getUploadLink(String response) {
@@ -2,32 +2,31 @@ package disa.notification.service.utils;
 
 import static java.util.stream.Collectors.groupingBy;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.context.MessageSource;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.ClassPathResource;
 
 import disa.notification.service.entity.ViralResultStatistics;
+import disa.notification.service.enums.NotProcessingCause;
 import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.LabResultDataset;
 import disa.notification.service.service.interfaces.LabResultSummary;
 import disa.notification.service.service.interfaces.LabResults;
 import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
@@ -42,41 +41,115 @@ public class SyncReport implements XLSColumnConstants {
     private static final int PENDING_BY_US_SHEET = 5;
     private static final int PENDING_BY_NID_SHEET = 6;
 
+    /**
+     * Number of data rows kept in memory per sheet, older rows are flushed to a
+     * temporary file on disk.
+     */
+    static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    // First row available for data on each sheet, rows above it are the template
+    // header
+    private static final int RECEIVED_BY_DISTRICT_FIRST_ROW = 2;
+    private static final int RECEIVED_BY_US_FIRST_ROW = 3;
+    private static final int RECEIVED_BY_NID_FIRST_ROW = 2;
+    private static final int PENDING_BY_US_FIRST_ROW = 2;
+    private static final int PENDING_BY_NID_FIRST_ROW = 2;
+
+    private static ReportTemplate template;
+
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
 
-    private MessageSource messageSource;
+    private static final String REPROCESSED_OBS = "Reprocessado apos a correcao do NID";
 
     private DateInterval reportDateInterval;
 
+    private final SheetTimer sheetTimer;
+
+    // Labels resolved once, indexed by the enum ordinal
+    private final String[] statusLabels = new String[ViralLoadStatus.values().length];
+    private final String[] notProcessingCauseLabels = new String[NotProcessingCause.values().length];
+
     public SyncReport(MessageSource messageSource, DateInterval reportDateInterval) {
-        this.messageSource = messageSource;
+        this(messageSource, reportDateInterval, (sheet, nanos) -> {
+        });
+    }
+
+    public SyncReport(MessageSource messageSource, DateInterval reportDateInterval, SheetTimer sheetTimer) {
         this.reportDateInterval = reportDateInterval;
+        this.sheetTimer = sheetTimer;
+        for (ViralLoadStatus status : ViralLoadStatus.values()) {
+            statusLabels[status.ordinal()] = messageSource.getMessage("disa.viraLoadStatus." + status,
+                    new String[] {}, Locale.getDefault());
+        }
+        for (NotProcessingCause cause : NotProcessingCause.values()) {
+            notProcessingCauseLabels[cause.ordinal()] = messageSource.getMessage(
+                    "disa.notProcessingCause." + cause, new String[] {}, Locale.getDefault());
+        }
     }
 
-    public ByteArrayResource getViralResultXLS(
-            List<LabResultSummary> viralLoaderResultSummary, List<LabResults> viralLoadResults,
-            List<LabResults> unsyncronizedViralLoadResults,
-            List<PendingHealthFacilitySummary> pendingHealthFacilitySummaries) {
-
-        try (InputStream in = new ClassPathResource("templates/SyncReport.xlsx").getInputStream();
-                XSSFWorkbook workbook = new XSSFWorkbook(in);
-                ByteArrayOutputStream stream = new ByteArrayOutputStream();) {
-
-            composeVariablesSheet(workbook);
-            composeReceivedByDistrictSheet(viralLoaderResultSummary, workbook);
-            composeReceivedByUSSheet(viralLoaderResultSummary, workbook);
-            composeReceivedByNIDSheet(viralLoadResults, workbook);
-            composePendingByUSSheet(pendingHealthFacilitySummaries, workbook);
-            composePendingByNIDSheet(unsyncronizedViralLoadResults, workbook);
-            XSSFFormulaEvaluator.evaluateAllFormulaCells(workbook);
-            workbook.write(stream);
-            return new ByteArrayResource(stream.toByteArray());
+    public void writeViralResultXLS(LabResultDataset dataset, ReportOutput output) {
+
+        try (XSSFWorkbook template = getTemplate().newWorkbook()) {
+
+            // The header formulas only reference the variables sheet, so they are
+            // evaluated on the template before any data row is streamed.
+            long startTime = System.nanoTime();
+            composeVariablesSheet(template);
+            getTemplate().evaluateFormulaCells(template);
+            startTime = recordSheet("variables", startTime);
+
+            SXSSFWorkbook workbook = new SXSSFWorkbook(template, ROW_ACCESS_WINDOW_SIZE);
+            workbook.setCompressTempFiles(true);
+            try {
+                SheetWriters writers = new SheetWriters(workbook);
+                // The summaries are built while the results are written
+                composeNIDSheets(dataset, workbook, writers);
+                startTime = recordSheet("resultsByNid", startTime);
+                composeReceivedByDistrictSheet(dataset.getResultSummaries(), workbook, writers);
+                startTime = recordSheet("receivedByDistrict", startTime);
+                composeReceivedByUSSheet(dataset.getResultSummaries(), workbook, writers);
+                startTime = recordSheet("receivedByHealthFacility", startTime);
+                composePendingByUSSheet(dataset.getPendingHealthFacilitySummaries(), workbook, writers);
+                startTime = recordSheet("pendingByHealthFacility", startTime);
+                try (OutputStream stream = output.openOutputStream()) {
+                    workbook.write(stream);
+                }
+                recordSheet("write", startTime);
+            } finally {
+                workbook.dispose();
+            }
 
         } catch (IOException e) {
             throw new RuntimeException("Could not generate the file", e);
         }
     }
 
+    /**
+     * @return the start time of the next sheet
+     */
+    private long recordSheet(String sheet, long startTime) {
+        long now = System.nanoTime();
+        sheetTimer.record(sheet, now - startTime);
+        return now;
+    }
+
+    /**
+     * The template is the same for every report, it is read and prepared on the
+     * first report.
+     */
+    static synchronized ReportTemplate getTemplate() throws IOException {
+        if (template == null) {
+            Map<Integer, Integer> firstDataRows = new HashMap<>();
+            firstDataRows.put(RECEIVED_BY_DISTRICT_SHEET, RECEIVED_BY_DISTRICT_FIRST_ROW);
+            firstDataRows.put(RECEIVED_BY_US_SHEET, RECEIVED_BY_US_FIRST_ROW);
+            firstDataRows.put(RECEIVED_BY_NID_SHEET, RECEIVED_BY_NID_FIRST_ROW);
+            firstDataRows.put(PENDING_BY_US_SHEET, PENDING_BY_US_FIRST_ROW);
+            firstDataRows.put(PENDING_BY_NID_SHEET, PENDING_BY_NID_FIRST_ROW);
+            template = ReportTemplate.load("templates/SyncReport.xlsx", firstDataRows);
+        }
+        return template;
+    }
+
     private void composeVariablesSheet(Workbook workbook) {
         String startDateFormatted = reportDateInterval.getStartDateTime().toLocalDate()
                 .format(DATE_FORMAT);
@@ -90,11 +163,13 @@ public class SyncReport implements XLSColumnConstants {
         workbook.setSheetHidden(VARIABLES_SHEET, true);
     }
 
-    private void composeReceivedByDistrictSheet(List<LabResultSummary> viralLoaderResultSummaryList,
-            Workbook workbook) {
+    // The compose methods are package private so each sheet can be benchmarked on
+    // its own
+    void composeReceivedByDistrictSheet(List<LabResultSummary> viralLoaderResultSummaryList,
+            Workbook workbook, SheetWriters writers) {
         Sheet sheet = workbook.getSheetAt(RECEIVED_BY_DISTRICT_SHEET);
 
-        AtomicInteger counter4 = new AtomicInteger(2);
+        AtomicInteger counter4 = new AtomicInteger(RECEIVED_BY_DISTRICT_FIRST_ROW);
         Map<String, Map<String, Map<String, ViralResultStatistics>>> provinces = viralLoaderResultSummaryList
                 .stream()
                 .collect(groupingBy(LabResultSummary::getRequestingProvinceName,
@@ -107,400 +182,248 @@ public class SyncReport implements XLSColumnConstants {
             districts.forEach((district, typesOfResult) -> {
                 typesOfResult.forEach((type, stats) -> {
                     Row row = sheet.createRow(counter4.getAndIncrement());
-                    createStatResultRow(workbook, row, province, district, stats);
+                    writers.districtStatistics.write(row, new DistrictStatistics(province, district, stats));
                     totals.accumulate(stats);
                 });
             });
         });
 
         Row row = sheet.createRow(counter4.getAndIncrement());
-        createStatLastResultRow(workbook, row, totals);
+        writers.districtTotals.write(row, totals);
     }
 
-    private void composePendingByUSSheet(List<PendingHealthFacilitySummary> pendingViralResultSummaries,
-            Workbook workbook) {
+    void composePendingByUSSheet(List<PendingHealthFacilitySummary> pendingViralResultSummaries,
+            Workbook workbook, SheetWriters writers) {
         Sheet sheet4 = workbook.getSheetAt(PENDING_BY_US_SHEET);
-        AtomicInteger counter = new AtomicInteger(2);
+        AtomicInteger counter = new AtomicInteger(PENDING_BY_US_FIRST_ROW);
         pendingViralResultSummaries.forEach(pendingViralResultSummary -> {
             Row row = sheet4.createRow(counter.getAndIncrement());
-            createPendingViralResultSummaryRow(row, pendingViralResultSummary);
+            writers.pendingByUs.write(row, pendingViralResultSummary);
         });
     }
 
-    private void composePendingByNIDSheet(List<LabResults> unsyncronizedViralLoadResults,
-            Workbook workbook) {
-        Sheet sheet3 = workbook.getSheetAt(PENDING_BY_NID_SHEET);
-        int rownum = 2;
-        for (LabResults viralResult : unsyncronizedViralLoadResults) {
-            Row row = sheet3.createRow(rownum++);
-            createUnsyncronizedViralResultRow(row, viralResult);
-        }
+    void composeNIDSheets(LabResultDataset dataset, Workbook workbook, SheetWriters writers) {
+        Sheet receivedSheet = workbook.getSheetAt(RECEIVED_BY_NID_SHEET);
+        Sheet pendingSheet = workbook.getSheetAt(PENDING_BY_NID_SHEET);
+        AtomicInteger receivedCounter = new AtomicInteger(RECEIVED_BY_NID_FIRST_ROW);
+        AtomicInteger pendingCounter = new AtomicInteger(PENDING_BY_NID_FIRST_ROW);
+        writers.receivedByNid.trackColumnWidths(
+                getTemplateSheet(workbook, RECEIVED_BY_NID_SHEET).getRow(RECEIVED_BY_NID_FIRST_ROW - 1));
+
+        dataset.forEachResult(
+                viralResult -> writers.receivedByNid
+                        .write(receivedSheet.createRow(receivedCounter.getAndIncrement()), viralResult),
+                viralResult -> writers.pendingByNid
+                        .write(pendingSheet.createRow(pendingCounter.getAndIncrement()), viralResult));
+
+        // Flushed rows are no longer available, so widths are measured as rows are
+        // written
+        writers.receivedByNid.applyColumnWidths(receivedSheet);
     }
 
-    private void composeReceivedByNIDSheet(List<LabResults> viralLoadResults, Workbook workbook) {
-        Sheet sheet = workbook.getSheetAt(RECEIVED_BY_NID_SHEET);
-        int rowNum = 2;
-        for (LabResults viralResult : viralLoadResults) {
-            createReceivedByNIDRow(sheet.createRow(rowNum++), viralResult);
-        }
-        for (ResultsReceivedByNid r : ResultsReceivedByNid.values()) {
-            sheet.autoSizeColumn(r.ordinal());
+    /**
+     * The rows of the template are only on the sheets of the template workbook
+     * when the report is streamed.
+     */
+    private static Sheet getTemplateSheet(Workbook workbook, int index) {
+        if (workbook instanceof SXSSFWorkbook) {
+            return ((SXSSFWorkbook) workbook).getXSSFWorkbook().getSheetAt(index);
         }
+        return workbook.getSheetAt(index);
     }
 
-    private void composeReceivedByUSSheet(List<LabResultSummary> viralLoaderResultSummary,
-            Workbook workbook) {
+    void composeReceivedByUSSheet(List<LabResultSummary> viralLoaderResultSummary,
+            Workbook workbook, SheetWriters writers) {
         Sheet sheet = workbook.getSheetAt(RECEIVED_BY_US_SHEET);
-        AtomicInteger counter = new AtomicInteger(3);
+        AtomicInteger counter = new AtomicInteger(RECEIVED_BY_US_FIRST_ROW);
         viralLoaderResultSummary.stream().forEach(viralResult -> {
             Row row = sheet.createRow(counter.getAndIncrement());
-            createViralResultSummaryRow(row, viralResult);
+            writers.receivedByUs.write(row, viralResult);
         });
 
     }
 
-    private void createViralResultSummaryRow(Row row, LabResultSummary viralLoaderResult) {
-        for (ResultsByHFSummary byHfSummary : ResultsByHFSummary.values()) {
-            Cell cell = row.createCell(byHfSummary.ordinal());
-            switch (byHfSummary) {
-                case PROVINCE:
-                    cell.setCellValue(viralLoaderResult.getRequestingProvinceName());
-                    break;
-                case DISTRICT:
-                    cell.setCellValue(viralLoaderResult.getRequestingDistrictName());
-                    break;
-                case HEALTH_FACILITY_CODE:
-                    cell.setCellValue(StringUtils.center(viralLoaderResult.getHealthFacilityLabCode(), 11, " "));
-                    break;
-                case HEALTH_FACILITY_NAME:
-                    cell.setCellValue(viralLoaderResult.getFacilityName());
-                    break;
-                case TYPE_OF_RESULT:
-                    cell.setCellValue(viralLoaderResult.getTypeOfResult());
-                    break;
-                case TOTAL_RECEIVED:
-                    cell.setCellValue(viralLoaderResult.getTotalReceived());
-                    break;
-                case TOTAL_PROCESSED:
-                    cell.setCellValue(viralLoaderResult.getProcessed());
-                    break;
-                case TOTAL_PENDING:
-                    cell.setCellValue(viralLoaderResult.getTotalPending());
-                    break;
-                case NOT_PROCESSED_INVALID_RESULT:
-                    cell.setCellValue(viralLoaderResult.getNotProcessedInvalidResult());
-                    break;
-                case NOT_PROCESSED_NID_NOT_FOUND:
-                    cell.setCellValue(viralLoaderResult.getNotProcessedNidNotFount());
-                    break;
-                case NOT_PROCESSED_DUPLICATED_NID:
-                    cell.setCellValue(viralLoaderResult.getNotProcessedDuplicateNid());
-                    break;
-                case NOT_PROCESSED_DUPLICATED_REQUEST_ID:
-                    cell.setCellValue(viralLoaderResult.getNotProcessedDuplicatedRequestId());
-                    break;
-                default:
-                    break;
-            }
-        }
+    private String getStatusLabel(LabResults result) {
+        ViralLoadStatus status = result.getViralLoadStatusValue();
+        return status != null ? statusLabels[status.ordinal()] : result.getViralLoadStatus();
     }
 
-    private void createReceivedByNIDRow(Row row, LabResults viralLoaderResult) {
-
-        for (ResultsReceivedByNid byNID : ResultsReceivedByNid.values()) {
-            Cell cell = row.createCell(byNID.ordinal());
-            switch (byNID) {
-                case REQUEST_ID:
-                    cell.setCellValue(viralLoaderResult.getRequestId());
-                    break;
-                case TYPE_OF_RESULT:
-                    cell.setCellValue(viralLoaderResult.getTypeOfResult());
-                    break;
-                case NID:
-                    cell.setCellValue(viralLoaderResult.getNID());
-                    break;
-                case PROVINCE:
-                    cell.setCellValue(viralLoaderResult.getRequestingProvinceName());
-                    break;
-                case DISTRICT:
-                    cell.setCellValue(viralLoaderResult.getRequestingDistrictName());
-                    break;
-                case HEALTH_FACILITY_CODE:
-                    cell.setCellValue(viralLoaderResult.getHealthFacilityLabCode());
-                    break;
-                case HEALTH_FACILITY_NAME:
-                    cell.setCellValue(viralLoaderResult.getRequestingFacilityName());
-                    break;
-                case CREATED_AT:
-                    cell.setCellValue(viralLoaderResult.getCreatedAt().format(DATE_FORMAT));
-
-                    break;
-                case UPDATED_AT:
-                    cell.setCellValue(viralLoaderResult.getUpdatedAt() != null
-                            ? viralLoaderResult.getUpdatedAt().format(DATE_FORMAT)
-                            : "");
-                    break;
-                case VIRAL_RESULT_STATUS:
-                    cell.setCellValue(
-                            messageSource.getMessage("disa.viraLoadStatus." + viralLoaderResult.getViralLoadStatus(),
-                                    new String[] {}, Locale.getDefault()));
-                    break;
-                case NOT_PROCESSING_CAUSE:
-                    String cellValue = "";
-                    if (viralLoaderResult.getNotProcessingCause() != null) {
-                        cellValue = messageSource.getMessage(
-                                "disa.notProcessingCause." + viralLoaderResult.getNotProcessingCause(), new String[] {},
-                                Locale.getDefault());
-                    }
-                    cell.setCellValue(cellValue);
-                    break;
-                case OBS:
-                    cell.setCellValue(viralLoaderResult.getNotProcessingCause() != null
-                            && viralLoaderResult.getNotProcessingCause().trim().equals("NID_NOT_FOUND")
-                            && viralLoaderResult.getViralLoadStatus().equals(ViralLoadStatus.PROCESSED.name())
-                                    ? "Reprocessado apos a correcao do NID"
-                                    : " ");
-                    break;
-                default:
-                    break;
-            }
-
+    private String getNotProcessingCauseLabel(LabResults result) {
+        NotProcessingCause cause = result.getNotProcessingCauseValue();
+        if (cause != null) {
+            return notProcessingCauseLabels[cause.ordinal()];
         }
+        return result.getNotProcessingCause() != null ? result.getNotProcessingCause() : "";
     }
 
-    private void createPendingViralResultSummaryRow(Row row,
-            PendingHealthFacilitySummary pendingViralResultSummary) {
-
-        for (ResultsPendingByUs pending : ResultsPendingByUs.values()) {
-            Cell cell = row.createCell(pending.ordinal());
-            switch (pending) {
-                case PROVINCE:
-                    cell.setCellValue(pendingViralResultSummary.getRequestingProvinceName());
-                    break;
-                case DISTRICT:
-                    cell.setCellValue(pendingViralResultSummary.getRequestingDistrictName());
-                    break;
-                case US_CODE:
-                    cell.setCellValue(pendingViralResultSummary.getHealthFacilityLabCode());
-                    break;
-                case US_NAME:
-                    cell.setCellValue(pendingViralResultSummary.getFacilityName());
-                    break;
-                case TOTAL_PENDING:
-                    cell.setCellValue(pendingViralResultSummary.getTotalPending());
-                    break;
-                case LAST_SYNC:
-                    cell.setCellValue(pendingViralResultSummary.getLastSyncDate() != null ? pendingViralResultSummary
-                            .getLastSyncDate().toLocalDate().format(DATE_FORMAT) : "");
-                    break;
-                default:
-                    break;
-            }
-        }
-
-    }
-
-    private void createUnsyncronizedViralResultRow(Row row, LabResults viralLoaderResult) {
-
-        for (ResultsPendingByNid pendingByNid : ResultsPendingByNid.values()) {
-            Cell cell = row.createCell(pendingByNid.ordinal());
-            switch (pendingByNid) {
-                case REQUEST_ID:
-                    cell.setCellValue(viralLoaderResult.getRequestId());
-                    break;
-                case NID:
-                    cell.setCellValue(viralLoaderResult.getNID());
-                    break;
-                case PROVINCE:
-                    cell.setCellValue(viralLoaderResult.getRequestingProvinceName());
-                    break;
-                case DISTRICT:
-                    cell.setCellValue(viralLoaderResult.getRequestingDistrictName());
-                    break;
-                case HEALTH_FACILITY_CODE:
-                    cell.setCellValue(viralLoaderResult.getHealthFacilityLabCode());
-                    break;
-                case HEALTH_FACILITY_NAME:
-                    cell.setCellValue(viralLoaderResult.getRequestingFacilityName());
-                    break;
-                case SENT_DATE:
-                    cell.setCellValue(
-                            viralLoaderResult.getCreatedAt().toLocalDate().format(DATE_FORMAT));
-                    break;
-                case STATUS:
-                    cell.setCellValue(messageSource
-                            .getMessage("disa.viraLoadStatus." + viralLoaderResult.getViralLoadStatus(),
-                                    new String[] {}, Locale.getDefault()));
-                    break;
-                default:
-                    break;
-            }
-        }
-
+    private static String getObs(LabResults viralLoaderResult) {
+        return viralLoaderResult.getNotProcessingCauseValue() == NotProcessingCause.NID_NOT_FOUND
+                && viralLoaderResult.getViralLoadStatusValue() == ViralLoadStatus.PROCESSED
+                        ? REPROCESSED_OBS
+                        : " ";
     }
 
-    private void createStatResultRow(Workbook workbook, Row row, String province, String district,
-            ViralResultStatistics viralResultStatistics) {
-
-        for (ResultsByDistrictSummary r : ResultsByDistrictSummary.values()) {
-            Cell cell = row.createCell(r.ordinal());
-            switch (r) {
-                case PROVINCE:
-                    cell.setCellValue(province);
-                    break;
-                case DISTRICT:
-                    cell.setCellValue(district);
-                    break;
-                case TYPE_OF_RESULT:
-                    cell.setCellValue(viralResultStatistics.getTypeOfResult());
-                    break;
-                case TOTAL_PROCESSED:
-                    cell.setCellValue(viralResultStatistics.getProcessed());
-                    break;
-                case PERCENTAGE_PROCESSED:
-                    cell.setCellStyle(getPercentCellStyle(workbook));
-                    cell.setCellValue(viralResultStatistics.getProcessedPercentage());
-                    break;
-                case TOTAL_PENDING:
-                    cell.setCellValue(viralResultStatistics.getPending());
-                    break;
-                case PERCENTAGE_PENDING:
-                    cell.setCellStyle(getPercentCellStyle(workbook));
-                    cell.setCellValue(viralResultStatistics.getPendingPercentage());
-                    break;
-                case NOT_PROCESSED_INVALID_RESULT:
-                    cell.setCellValue(viralResultStatistics.getNoProcessedInvalidResult());
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_INVALID_RESULT:
-                    cell.setCellStyle(getPercentCellStyle(workbook));
-                    cell.setCellValue(viralResultStatistics.getNoProcessedNoResultPercentage());
-                    break;
-                case NOT_PROCESSED_NID_NOT_FOUND:
-                    cell.setCellValue(viralResultStatistics.getNoProcessedNidNotFound());
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_NID_NOT_FOUND:
-                    cell.setCellStyle(getPercentCellStyle(workbook));
-                    cell.setCellValue(viralResultStatistics.getNoProcessedNidNotFoundPercentage());
-                    break;
-                case NOT_PROCESSED_DUPLICATED_NID:
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicateNid());
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_DUPLICATED_NID:
-                    cell.setCellStyle(getPercentCellStyle(workbook));
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicateNidPercentage());
-                    break;
-                case NOT_PROCESSED_DUPLICATED_REQUEST_ID:
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicatedReqId());
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_DUPLICATED_REQUEST_ID:
-                    cell.setCellStyle(getPercentCellStyle(workbook));
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicatedReqIdPercentage());
-                    break;
-                case TOTAL_RECEIVED:
-                    cell.setCellValue(viralResultStatistics.getTotal());
-                    break;
-                default:
-                    break;
-            }
-        }
+    private static String formatDate(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.format(DATE_FORMAT) : "";
     }
 
-    private void createStatLastResultRow(Workbook workbook, Row row, ViralResultStatistics viralResultStatistics) {
-
-        for (ResultsByDistrictSummary r : ResultsByDistrictSummary.values()) {
-            Cell cell = row.createCell(r.ordinal());
-            switch (r) {
-                case PROVINCE:
-                    cell.setCellValue("Total");
-                    cell.setCellStyle(getTotalsCellStyle(workbook));
-                    break;
-                case TOTAL_PROCESSED:
-                    cell.setCellValue(viralResultStatistics.getProcessed());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                case PERCENTAGE_PROCESSED:
-                    cell.setCellValue(viralResultStatistics.getProcessedPercentage());
-                    cell.setCellStyle(getBoldPercentCellStyle(workbook));
-                    break;
-                case TOTAL_PENDING:
-                    cell.setCellValue(viralResultStatistics.getPending());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                case PERCENTAGE_PENDING:
-                    cell.setCellValue(viralResultStatistics.getPendingPercentage());
-                    cell.setCellStyle(getBoldPercentCellStyle(workbook));
-                    break;
-                case NOT_PROCESSED_INVALID_RESULT:
-                    cell.setCellValue(viralResultStatistics.getNoProcessedInvalidResult());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_INVALID_RESULT:
-                    cell.setCellValue(viralResultStatistics.getNoProcessedNoResultPercentage());
-                    cell.setCellStyle(getBoldPercentCellStyle(workbook));
-                    break;
-                case NOT_PROCESSED_NID_NOT_FOUND:
-                    cell.setCellValue(viralResultStatistics.getNoProcessedNidNotFound());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_NID_NOT_FOUND:
-                    cell.setCellValue(viralResultStatistics.getNoProcessedNidNotFoundPercentage());
-                    cell.setCellStyle(getBoldPercentCellStyle(workbook));
-                    break;
-                case NOT_PROCESSED_DUPLICATED_NID:
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicateNid());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_DUPLICATED_NID:
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicateNidPercentage());
-                    cell.setCellStyle(getBoldPercentCellStyle(workbook));
-                    break;
-                case NOT_PROCESSED_DUPLICATED_REQUEST_ID:
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicatedReqId());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                case PERCENTAGE_NOT_PROCESSED_DUPLICATED_REQUEST_ID:
-                    cell.setCellValue(viralResultStatistics.getNotProcessedDuplicatedReqIdPercentage());
-                    cell.setCellStyle(getBoldPercentCellStyle(workbook));
-                    break;
-                case TOTAL_RECEIVED:
-                    cell.setCellValue(viralResultStatistics.getTotal());
-                    cell.setCellStyle(getBoldStyle(workbook));
-                    break;
-                default:
-                    break;
-            }
+    /**
+     * The row writers of each sheet, with the styles they share created once for
+     * the workbook.
+     */
+    class SheetWriters {
+
+        private final RowWriter<LabResultSummary> receivedByUs;
+        private final RowWriter<LabResults> receivedByNid;
+        private final RowWriter<PendingHealthFacilitySummary> pendingByUs;
+        private final RowWriter<LabResults> pendingByNid;
+        private final RowWriter<DistrictStatistics> districtStatistics;
+        private final RowWriter<ViralResultStatistics> districtTotals;
+
+        SheetWriters(Workbook workbook) {
+            DataFormat dataFormat = workbook.createDataFormat();
+            Font boldFont = workbook.createFont();
+            boldFont.setBold(true);
+
+            CellStyle percent = workbook.createCellStyle();
+            percent.setDataFormat(dataFormat.getFormat("0%"));
+            CellStyle bold = workbook.createCellStyle();
+            bold.setFont(boldFont);
+            CellStyle boldPercent = workbook.createCellStyle();
+            boldPercent.setFont(boldFont);
+            boldPercent.setDataFormat(dataFormat.getFormat("0%"));
+            CellStyle totals = workbook.createCellStyle();
+            totals.setAlignment(HorizontalAlignment.RIGHT);
+            totals.setFont(boldFont);
+            CellStyle centered = workbook.createCellStyle();
+            centered.setAlignment(HorizontalAlignment.CENTER);
+
+            receivedByUs = new RowWriter<LabResultSummary>(ResultsByHFSummary.class)
+                    .text(ResultsByHFSummary.PROVINCE, LabResultSummary::getRequestingProvinceName)
+                    .text(ResultsByHFSummary.DISTRICT, LabResultSummary::getRequestingDistrictName)
+                    .text(ResultsByHFSummary.HEALTH_FACILITY_CODE, LabResultSummary::getHealthFacilityLabCode,
+                            centered)
+                    .text(ResultsByHFSummary.HEALTH_FACILITY_NAME, LabResultSummary::getFacilityName)
+                    .text(ResultsByHFSummary.TYPE_OF_RESULT, LabResultSummary::getTypeOfResult)
+                    .number(ResultsByHFSummary.TOTAL_RECEIVED, LabResultSummary::getTotalReceived)
+                    .number(ResultsByHFSummary.TOTAL_PROCESSED, LabResultSummary::getProcessed)
+                    .number(ResultsByHFSummary.TOTAL_PENDING, LabResultSummary::getTotalPending)
+                    .number(ResultsByHFSummary.NOT_PROCESSED_INVALID_RESULT,
+                            LabResultSummary::getNotProcessedInvalidResult)
+                    .number(ResultsByHFSummary.NOT_PROCESSED_NID_NOT_FOUND,
+                            LabResultSummary::getNotProcessedNidNotFount)
+                    .number(ResultsByHFSummary.NOT_PROCESSED_DUPLICATED_NID,
+                            LabResultSummary::getNotProcessedDuplicateNid)
+                    .number(ResultsByHFSummary.NOT_PROCESSED_DUPLICATED_REQUEST_ID,
+                            LabResultSummary::getNotProcessedDuplicatedRequestId);
+
+            receivedByNid = new RowWriter<LabResults>(ResultsReceivedByNid.class)
+                    .text(ResultsReceivedByNid.REQUEST_ID, LabResults::getRequestId)
+                    .text(ResultsReceivedByNid.TYPE_OF_RESULT, LabResults::getTypeOfResult)
+                    .text(ResultsReceivedByNid.NID, LabResults::getNID)
+                    .text(ResultsReceivedByNid.PROVINCE, LabResults::getRequestingProvinceName)
+                    .text(ResultsReceivedByNid.DISTRICT, LabResults::getRequestingDistrictName)
+                    .text(ResultsReceivedByNid.HEALTH_FACILITY_CODE, LabResults::getHealthFacilityLabCode)
+                    .text(ResultsReceivedByNid.HEALTH_FACILITY_NAME, LabResults::getRequestingFacilityName)
+                    .text(ResultsReceivedByNid.CREATED_AT, r -> formatDate(r.getCreatedAt()))
+                    .text(ResultsReceivedByNid.UPDATED_AT, r -> formatDate(r.getUpdatedAt()))
+                    .text(ResultsReceivedByNid.VIRAL_RESULT_STATUS, r -> getStatusLabel(r))
+                    .text(ResultsReceivedByNid.NOT_PROCESSING_CAUSE, r -> getNotProcessingCauseLabel(r))
+                    .text(ResultsReceivedByNid.OBS, SyncReport::getObs)
+                    .trackColumnWidths();
+
+            pendingByUs = new RowWriter<PendingHealthFacilitySummary>(ResultsPendingByUs.class)
+                    .text(ResultsPendingByUs.PROVINCE, PendingHealthFacilitySummary::getRequestingProvinceName)
+                    .text(ResultsPendingByUs.DISTRICT, PendingHealthFacilitySummary::getRequestingDistrictName)
+                    .text(ResultsPendingByUs.US_CODE, PendingHealthFacilitySummary::getHealthFacilityLabCode)
+                    .text(ResultsPendingByUs.US_NAME, PendingHealthFacilitySummary::getFacilityName)
+                    .number(ResultsPendingByUs.TOTAL_PENDING, PendingHealthFacilitySummary::getTotalPending)
+                    .text(ResultsPendingByUs.LAST_SYNC, r -> formatDate(r.getLastSyncDate()));
+
+            pendingByNid = new RowWriter<LabResults>(ResultsPendingByNid.class)
+                    .text(ResultsPendingByNid.REQUEST_ID, LabResults::getRequestId)
+                    .text(ResultsPendingByNid.NID, LabResults::getNID)
+                    .text(ResultsPendingByNid.PROVINCE, LabResults::getRequestingProvinceName)
+                    .text(ResultsPendingByNid.DISTRICT, LabResults::getRequestingDistrictName)
+                    .text(ResultsPendingByNid.HEALTH_FACILITY_CODE, LabResults::getHealthFacilityLabCode)
+                    .text(ResultsPendingByNid.HEALTH_FACILITY_NAME, LabResults::getRequestingFacilityName)
+                    .text(ResultsPendingByNid.SENT_DATE, r -> formatDate(r.getCreatedAt()))
+                    .text(ResultsPendingByNid.STATUS, r -> getStatusLabel(r));
+
+            districtStatistics = new RowWriter<DistrictStatistics>(ResultsByDistrictSummary.class)
+                    .text(ResultsByDistrictSummary.PROVINCE, r -> r.province)
+                    .text(ResultsByDistrictSummary.DISTRICT, r -> r.district)
+                    .text(ResultsByDistrictSummary.TYPE_OF_RESULT, r -> r.statistics.getTypeOfResult())
+                    .number(ResultsByDistrictSummary.TOTAL_RECEIVED, r -> r.statistics.getTotal())
+                    .number(ResultsByDistrictSummary.TOTAL_PROCESSED, r -> r.statistics.getProcessed())
+                    .number(ResultsByDistrictSummary.PERCENTAGE_PROCESSED,
+                            r -> r.statistics.getProcessedPercentage(), percent)
+                    .number(ResultsByDistrictSummary.TOTAL_PENDING, r -> r.statistics.getPending())
+                    .number(ResultsByDistrictSummary.PERCENTAGE_PENDING,
+                            r -> r.statistics.getPendingPercentage(), percent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_INVALID_RESULT,
+                            r -> r.statistics.getNoProcessedInvalidResult())
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_INVALID_RESULT,
+                            r -> r.statistics.getNoProcessedNoResultPercentage(), percent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_NID_NOT_FOUND,
+                            r -> r.statistics.getNoProcessedNidNotFound())
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_NID_NOT_FOUND,
+                            r -> r.statistics.getNoProcessedNidNotFoundPercentage(), percent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_DUPLICATED_NID,
+                            r -> r.statistics.getNotProcessedDuplicateNid())
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_DUPLICATED_NID,
+                            r -> r.statistics.getNotProcessedDuplicateNidPercentage(), percent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_DUPLICATED_REQUEST_ID,
+                            r -> r.statistics.getNotProcessedDuplicatedReqId())
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_DUPLICATED_REQUEST_ID,
+                            r -> r.statistics.getNotProcessedDuplicatedReqIdPercentage(), percent);
+
+            districtTotals = new RowWriter<ViralResultStatistics>(ResultsByDistrictSummary.class)
+                    .text(ResultsByDistrictSummary.PROVINCE, r -> "Total", totals)
+                    .number(ResultsByDistrictSummary.TOTAL_RECEIVED, ViralResultStatistics::getTotal, bold)
+                    .number(ResultsByDistrictSummary.TOTAL_PROCESSED, ViralResultStatistics::getProcessed, bold)
+                    .number(ResultsByDistrictSummary.PERCENTAGE_PROCESSED,
+                            ViralResultStatistics::getProcessedPercentage, boldPercent)
+                    .number(ResultsByDistrictSummary.TOTAL_PENDING, ViralResultStatistics::getPending, bold)
+                    .number(ResultsByDistrictSummary.PERCENTAGE_PENDING,
+                            ViralResultStatistics::getPendingPercentage, boldPercent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_INVALID_RESULT,
+                            ViralResultStatistics::getNoProcessedInvalidResult, bold)
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_INVALID_RESULT,
+                            ViralResultStatistics::getNoProcessedNoResultPercentage, boldPercent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_NID_NOT_FOUND,
+                            ViralResultStatistics::getNoProcessedNidNotFound, bold)
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_NID_NOT_FOUND,
+                            ViralResultStatistics::getNoProcessedNidNotFoundPercentage, boldPercent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_DUPLICATED_NID,
+                            ViralResultStatistics::getNotProcessedDuplicateNid, bold)
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_DUPLICATED_NID,
+                            ViralResultStatistics::getNotProcessedDuplicateNidPercentage, boldPercent)
+                    .number(ResultsByDistrictSummary.NOT_PROCESSED_DUPLICATED_REQUEST_ID,
+                            ViralResultStatistics::getNotProcessedDuplicatedReqId, bold)
+                    .number(ResultsByDistrictSummary.PERCENTAGE_NOT_PROCESSED_DUPLICATED_REQUEST_ID,
+                            ViralResultStatistics::getNotProcessedDuplicatedReqIdPercentage, boldPercent);
         }
     }
 
-    private CellStyle getTotalsCellStyle(Workbook workbook) {
-        CellStyle style = workbook.createCellStyle();
-        style.setAlignment(HorizontalAlignment.RIGHT);
-        XSSFFont font = ((XSSFWorkbook) workbook).createFont();
-        font.setBold(true);
-        style.setFont(font);
-        return style;
+    /**
+     * Receives the time taken to compose each sheet, the received and pending by
+     * NID sheets include reading the results and write is the time to write the
+     * workbook.
+     */
+    public interface SheetTimer {
+        void record(String sheet, long nanos);
     }
 
-    private CellStyle getBoldStyle(Workbook workbook) {
-        CellStyle headerStyle = workbook.createCellStyle();
-        XSSFFont font = ((XSSFWorkbook) workbook).createFont();
-        font.setBold(true);
-        headerStyle.setFont(font);
-        return headerStyle;
-    }
-
-    private CellStyle getPercentCellStyle(Workbook workbook) {
-        CellStyle percent = workbook.createCellStyle();
-        DataFormat df = workbook.createDataFormat();
-        percent.setDataFormat(df.getFormat("0%"));
-        return percent;
-    }
+    private static class DistrictStatistics {
+        private final String province;
+        private final String district;
+        private final ViralResultStatistics statistics;
 
-    private CellStyle getBoldPercentCellStyle(Workbook workbook) {
-        CellStyle boldPercent = workbook.createCellStyle();
-        DataFormat df = workbook.createDataFormat();
-        boldPercent.cloneStyleFrom(getBoldStyle(workbook));
-        boldPercent.setDataFormat(df.getFormat("0%"));
-        return boldPercent;
+        DistrictStatistics(String province, String district, ViralResultStatistics statistics) {
+            this.province = province;
+            this.district = district;
+            this.statistics = statistics;
+        }
     }
 }
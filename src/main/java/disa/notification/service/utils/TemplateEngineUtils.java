@@ -1,14 +1,21 @@
 package disa.notification.service.utils;
 
-import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring5.SpringTemplateEngine;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 
 public class TemplateEngineUtils {
-	
-	public static TemplateEngine getTemplateEngine() {
-        TemplateEngine templateEngine = new TemplateEngine();
+
+    // Shared so the parsed templates are cached across emails
+    private static final SpringTemplateEngine TEMPLATE_ENGINE = createTemplateEngine();
+
+	public static SpringTemplateEngine getTemplateEngine() {
+        return TEMPLATE_ENGINE;
+    }
+
+    private static SpringTemplateEngine createTemplateEngine() {
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
         templateEngine.setTemplateResolver(getTemplateResolver());
         return templateEngine;
     }
@@ -18,6 +25,8 @@ public class TemplateEngineUtils {
         templateResolver.setTemplateMode(TemplateMode.HTML);
         templateResolver.setPrefix("templates/");
         templateResolver.setSuffix(".html");
+        templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setCacheable(true);
         return templateResolver;
     }
 }
@@ -0,0 +1,30 @@
+-- Tables of the daily rollups (app.rollup.enabled=true), run once on the DISA
+-- database before enabling them, the service does not create them.
+
+CREATE TABLE IF NOT EXISTS VlDataDailyRollup (
+    RollupDate DATE NOT NULL,
+    RequestingFacilityCode VARCHAR(100) NOT NULL,
+    TypeOfResult VARCHAR(100) NOT NULL,
+    RequestingProvinceName VARCHAR(255),
+    RequestingDistrictName VARCHAR(255),
+    RequestingFacilityName VARCHAR(255),
+    Total INT NOT NULL,
+    Processed INT NOT NULL,
+    Pending INT NOT NULL,
+    NotProcessedInvalidResult INT NOT NULL,
+    NotProcessedNidNotFound INT NOT NULL,
+    NotProcessedDuplicateNid INT NOT NULL,
+    NotProcessedDuplicatedRequestId INT NOT NULL,
+    PRIMARY KEY (RollupDate, RequestingFacilityCode, TypeOfResult)
+);
+
+CREATE TABLE IF NOT EXISTS VlDataRollupWatermark (
+    Id INT NOT NULL PRIMARY KEY,
+    Watermark DATETIME NULL
+);
+
+-- The refresh finds the results changed since the last one with a range of
+-- each index, without them every refresh reads the whole VlData table. Skip
+-- the ones VlData already has.
+CREATE INDEX idx_vldata_updated_at ON VlData (UPDATED_AT);
+CREATE INDEX idx_vldata_created_at ON VlData (CREATED_AT);
@@ -0,0 +1,141 @@
+package disa.notification.service.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import disa.notification.service.service.LabResultSenderTask;
+import disa.notification.service.service.ReportMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Runs the weekly report task on synthetic VlData in H2 and writes the time of
+ * each implementing partner and stage to target/load-report.txt. Excluded from
+ * the default build, run it with mvn -P load test. The size of the data is set
+ * with -Dload.partners, -Dload.orgUnitsPerPartner, -Dload.weeks and
+ * -Dload.resultsPerOrgUnitPerWeek.
+ */
+@Log4j2
+@Tag("load")
+@SpringBootTest(properties = {
+        "task.cron=-",
+        // Same table and column names and SQL dialect as the production schema
+        "spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL",
+        "spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl",
+        "app.reportDateInterval=custom",
+        "app.startDate=2024-03-03",
+        "app.endDate=2024-03-09",
+        "app.reportCache.enabled=false",
+        "app.checkpoint.directory=target/load/checkpoints-${random.uuid}" })
+public class LabResultSenderLoadTest {
+
+    private static final LocalDateTime LAST_WEEK_END = LocalDateTime.of(2024, 3, 9, 23, 59, 59);
+    private static final Path REPORT = Paths.get("target", "load-report.txt");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LabResultSenderTask labResultSenderTask;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${load.partners:5}")
+    private int partners;
+
+    @Value("${load.orgUnitsPerPartner:20}")
+    private int orgUnitsPerPartner;
+
+    @Value("${load.weeks:4}")
+    private int weeks;
+
+    @Value("${load.resultsPerOrgUnitPerWeek:100}")
+    private int resultsPerOrgUnitPerWeek;
+
+    @Value("${load.seed:42}")
+    private long seed;
+
+    @AfterEach
+    public void deleteReports() throws IOException {
+        // FileSystemMailService writes the reports to the working directory
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(Paths.get("."),
+                "viral_Result_" + VlDataGenerator.PARTNER_PREFIX.toUpperCase() + "*.xlsx")) {
+            for (Path report : reports) {
+                Files.delete(report);
+            }
+        }
+    }
+
+    @Test
+    public void testSendLabResultReport() throws IOException {
+        VlDataGenerator generator = new VlDataGenerator(jdbcTemplate, seed);
+        generator.prepareSchema();
+        long startTime = System.currentTimeMillis();
+        long rows = generator.generate(partners, orgUnitsPerPartner, weeks, resultsPerOrgUnitPerWeek, LAST_WEEK_END);
+        long generateMillis = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        labResultSenderTask.sendLabResultReport();
+        long runMillis = System.currentTimeMillis() - startTime;
+
+        String report = String.format("%d partners, %d org units, %d VlData rows generated in %d ms%n"
+                + "Report task finished in %d ms, %.0f rows/s%n%n%s", partners, partners * orgUnitsPerPartner, rows,
+                generateMillis, runMillis, rows * 1000.0 / Math.max(1, runMillis), formatTimers());
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report.getBytes(StandardCharsets.UTF_8));
+        log.info("Load report written to {}\n{}", REPORT.toAbsolutePath(), report);
+
+        assertThat(registry.find("disa.report.stage").tag("stage", "notify").timers())
+                .hasSize(partners)
+                .allMatch(timer -> timer.getId().getTag("outcome").equals("success"));
+    }
+
+    /**
+     * One line per implementing partner, metric and stage, query or sheet.
+     */
+    private String formatTimers() {
+        Map<String, Timer> timers = new TreeMap<>();
+        for (Timer timer : registry.find("disa.report.stage").timers()) {
+            timers.put(key(timer, "stage"), timer);
+        }
+        for (Timer timer : registry.find("disa.report.query").timers()) {
+            timers.put(key(timer, "query"), timer);
+        }
+        for (Timer timer : registry.find("disa.report.sheet").timers()) {
+            timers.put(key(timer, "sheet"), timer);
+        }
+        StringBuilder table = new StringBuilder(String.format("%-14s %-26s %-26s %6s %12s %12s%n", "partner",
+                "metric", "name", "count", "total ms", "max ms"));
+        timers.forEach((key, timer) -> table.append(String.format("%-14s %-26s %-26s %6d %12.1f %12.1f%n",
+                timer.getId().getTag("partner"), timer.getId().getName(), key.substring(key.lastIndexOf('|') + 1),
+                timer.count(), timer.totalTime(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS))));
+        return table.toString();
+    }
+
+    private static String key(Timer timer, String nameTag) {
+        String partner = timer.getId().getTag("partner");
+        // The work shared by every partner is listed first
+        String partnerKey = ReportMetrics.ALL_PARTNERS.equals(partner) ? "" : partner;
+        return partnerKey + "|" + timer.getId().getName() + "|" + timer.getId().getTag(nameTag);
+    }
+}
@@ -0,0 +1,130 @@
+package disa.notification.service.load;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+
+/**
+ * Fills ImplementingPartner, OrgUnit and VlData with synthetic data. Each
+ * implementing partner covers the health facilities of one province, the same
+ * seed always generates the same rows.
+ */
+public class VlDataGenerator {
+
+    public static final String PARTNER_PREFIX = "LoadPartner";
+
+    private static final int DISTRICTS_PER_PROVINCE = 15;
+    private static final int BATCH_SIZE = 1000;
+
+    // Viral load results are the large majority
+    private static final String[] TYPES_OF_RESULT = { "HIVVL", "HIVVL", "HIVVL", "HIVVL", "HIVVL", "HIVVL",
+            "HIVVL", "HIVVL", "CD4", "TBLAM" };
+
+    /**
+     * Columns read by the reporting queries that ViralLoaderEntity does not map,
+     * so they are missing from the schema generated for the tests.
+     */
+    private static final String[] UNMAPPED_COLUMNS = { "RequestingProvinceName VARCHAR(255)",
+            "RequestingDistrictName VARCHAR(255)", "TypeOfResult VARCHAR(50)", "UPDATED_AT TIMESTAMP",
+            "ENTITY_STATUS VARCHAR(20)" };
+
+    private static final String INSERT_VL_DATA = "INSERT INTO VlData (id, UNIQUEID, RequestID, FIRSTNAME, SURNAME, "
+            + "RequestingFacilityCode, RequestingFacilityName, RequestingProvinceName, RequestingDistrictName, "
+            + "TypeOfResult, VIRAL_LOAD_STATUS, NOT_PROCESSING_CAUSE, CREATED_AT, UPDATED_AT, ENTITY_STATUS) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    public VlDataGenerator(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Completes the schema generated from the entities. The VIRAL_LOAD_STATUS enum
+     * is read as a string, as the MySQL driver does, Hibernate cannot map the
+     * type H2 reports for it in native queries.
+     */
+    public void prepareSchema() {
+        for (String column : UNMAPPED_COLUMNS) {
+            jdbcTemplate.execute("ALTER TABLE VlData ADD COLUMN IF NOT EXISTS " + column);
+        }
+        jdbcTemplate.execute("ALTER TABLE VlData ALTER COLUMN VIRAL_LOAD_STATUS VARCHAR(20) NOT NULL");
+    }
+
+    /**
+     * @param resultsPerOrgUnitPerWeek average results of each health facility per
+     *                                 week, each one gets between half and one and
+     *                                 a half times as many
+     * @param lastWeekEnd              end of the last week with results
+     * @return the number of VlData rows
+     */
+    public long generate(int partners, int orgUnitsPerPartner, int weeks, int resultsPerOrgUnitPerWeek,
+            LocalDateTime lastWeekEnd) {
+        LocalDateTime firstWeekStart = lastWeekEnd.minusWeeks(weeks).plusSeconds(1);
+        int weekSeconds = 7 * 24 * 3600;
+        long id = 0;
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int p = 1; p <= partners; p++) {
+            String province = "Provincia " + p;
+            jdbcTemplate.update("INSERT INTO ImplementingPartner (id, orgName, mailList, enabled, repoLink, repoId) "
+                    + "VALUES (?, ?, ?, TRUE, ?, ?)", p, PARTNER_PREFIX + p, "partner" + p + "@example.org",
+                    "https://seafile.example.org/" + p, "repo-" + p);
+            for (int o = 1; o <= orgUnitsPerPartner; o++) {
+                String district = province + " Distrito " + (1 + o % DISTRICTS_PER_PROVINCE);
+                String code = String.format("%03d%05d", p, o);
+                String facility = "Centro de Saude " + code;
+                jdbcTemplate.update("INSERT INTO OrgUnit (code, province, district, facility, implementingPartnerId) "
+                        + "VALUES (?, ?, ?, ?, ?)", code, province, district, facility, p);
+
+                int results = weeks * (resultsPerOrgUnitPerWeek / 2 + random.nextInt(resultsPerOrgUnitPerWeek + 1));
+                for (int r = 0; r < results; r++) {
+                    rows.add(vlData(++id, code, facility, province, district,
+                            firstWeekStart.plusSeconds(random.nextInt(weeks * weekSeconds))));
+                    if (rows.size() == BATCH_SIZE) {
+                        jdbcTemplate.batchUpdate(INSERT_VL_DATA, rows);
+                        rows.clear();
+                    }
+                }
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_VL_DATA, rows);
+        }
+        return id;
+    }
+
+    /**
+     * 75% of the results are processed, 15% pending and 10% not processed, 2% are
+     * no longer active.
+     */
+    private Object[] vlData(long id, String code, String facility, String province, String district,
+            LocalDateTime createdAt) {
+        int status = random.nextInt(100);
+        String viralLoadStatus;
+        String notProcessingCause = null;
+        if (status < 75) {
+            viralLoadStatus = ViralLoadStatus.PROCESSED.name();
+        } else if (status < 90) {
+            viralLoadStatus = ViralLoadStatus.PENDING.name();
+        } else {
+            viralLoadStatus = ViralLoadStatus.NOT_PROCESSED.name();
+            notProcessingCause = NotProcessingCause.values()[random.nextInt(NotProcessingCause.values().length)]
+                    .name();
+        }
+        String entityStatus = random.nextInt(100) < 98 ? "ACTIVE" : "INACTIVE";
+        return new Object[] { id, code + "/2024/" + String.format("%05d", id % 100000), "REQ" + id,
+                "Nome" + id % 500, "Apelido" + id % 700, code, facility, province, district,
+                TYPES_OF_RESULT[random.nextInt(TYPES_OF_RESULT.length)], viralLoadStatus, notProcessingCause,
+                Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt.plusHours(random.nextInt(48))),
+                entityStatus };
+    }
+}
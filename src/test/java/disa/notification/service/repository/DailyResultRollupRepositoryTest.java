@@ -0,0 +1,163 @@
+package disa.notification.service.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.LabResultAggregator;
+
+public class DailyResultRollupRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 3, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 9, 23, 59, 59);
+    private static final Set<String> ORG_UNIT_CODES = new HashSet<>(Arrays.asList("1040107", "1040108"));
+
+    private JdbcTemplate jdbcTemplate;
+    private ReportResultRepository reportResultRepository;
+    private DailyResultRollupRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:dailyRollups;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE VlData (RequestId VARCHAR(50), UNIQUEID VARCHAR(50), "
+                + "FIRSTNAME VARCHAR(50), SURNAME VARCHAR(50), RequestingProvinceName VARCHAR(50), "
+                + "RequestingDistrictName VARCHAR(50), RequestingFacilityName VARCHAR(50), "
+                + "RequestingFacilityCode VARCHAR(50), CREATED_AT TIMESTAMP, UPDATED_AT TIMESTAMP, "
+                + "VIRAL_LOAD_STATUS VARCHAR(20), NOT_PROCESSING_CAUSE VARCHAR(50), TypeOfResult VARCHAR(20), "
+                + "ENTITY_STATUS VARCHAR(20))");
+        new ResourceDatabasePopulator(new ClassPathResource(DailyResultRollupRepository.SCRIPT)).execute(dataSource);
+
+        insert("R1", "1040107", "HIVVL", "PROCESSED", null, LocalDateTime.of(2024, 3, 3, 8, 0));
+        insert("R2", "1040107", "HIVVL", "NOT_PROCESSED", "NID_NOT_FOUND", LocalDateTime.of(2024, 3, 4, 10, 0));
+        insert("R3", "1040107", "CD4", "PENDING", null, LocalDateTime.of(2024, 3, 4, 23, 30));
+        insert("R4", "1040108", "HIVVL", "NOT_PROCESSED", "DUPLICATE_NID", LocalDateTime.of(2024, 3, 6, 10, 0));
+        insert("R5", "1040108", null, "PROCESSED", null, LocalDateTime.of(2024, 3, 7, 10, 0));
+        insert("R6", "1040108", "HIVVL", "NOT_PROCESSED", "INVALID_RESULT", LocalDateTime.of(2024, 3, 9, 9, 0));
+        insert("R7", "1040107", "HIVVL", "PROCESSED", null, LocalDateTime.of(2024, 3, 9, 10, 0));
+        jdbcTemplate.update("UPDATE VlData SET ENTITY_STATUS = 'INACTIVE' WHERE RequestId = 'R5'");
+        insert("R8", "1040108", null, "PROCESSED", null, LocalDateTime.of(2024, 3, 7, 11, 0));
+
+        reportResultRepository = new ReportResultRepository(dataSource, 2);
+        repository = new DailyResultRollupRepository(new NamedParameterJdbcTemplate(dataSource),
+                new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(repository, "overlapMinutes", 10);
+        ReflectionTestUtils.setField(repository, "backfillDays", 2);
+        repository.checkTables();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testRefreshBackfillsEveryDay() {
+        repository.refresh();
+
+        assertRollupsMatchResults();
+        assertThat(jdbcTemplate.queryForObject("SELECT Watermark FROM VlDataRollupWatermark", LocalDateTime.class))
+                .isEqualTo(LocalDateTime.of(2024, 3, 9, 11, 0));
+    }
+
+    @Test
+    public void testRefreshRecomputesChangedDays() {
+        repository.refresh();
+
+        // Updated after the watermark
+        update("R1", "NOT_PROCESSED", "DUPLICATED_REQUEST_ID", LocalDateTime.of(2024, 3, 9, 12, 0));
+        // Committed out of order, less than the overlap before the watermark
+        update("R3", "PROCESSED", null, LocalDateTime.of(2024, 3, 9, 10, 55));
+        insert("R9", "1040108", "CD4", "PENDING", null, LocalDateTime.of(2024, 3, 9, 11, 30));
+        jdbcTemplate.update("UPDATE VlData SET ENTITY_STATUS = 'INACTIVE', UPDATED_AT = ? WHERE RequestId = 'R6'",
+                LocalDateTime.of(2024, 3, 9, 12, 30));
+        repository.refresh();
+
+        assertRollupsMatchResults();
+        assertThat(jdbcTemplate.queryForObject("SELECT Watermark FROM VlDataRollupWatermark", LocalDateTime.class))
+                .isEqualTo(LocalDateTime.of(2024, 3, 9, 12, 30));
+    }
+
+    @Test
+    public void testFindResultSummariesOfPartOfTheDays() {
+        repository.refresh();
+
+        List<LabResultSummary> summaries = repository.findResultSummaries(new HashSet<>(Arrays.asList("1040107")),
+                DateInterval.of(LocalDateTime.of(2024, 3, 4, 0, 0), LocalDateTime.of(2024, 3, 4, 23, 59, 59)));
+
+        assertThat(summaries).extracting(DailyResultRollupRepositoryTest::toTuple)
+                .containsExactlyInAnyOrderElementsOf(aggregate(new HashSet<>(Arrays.asList("1040107")),
+                        LocalDateTime.of(2024, 3, 4, 0, 0), LocalDateTime.of(2024, 3, 4, 23, 59, 59)));
+    }
+
+    @Test
+    public void testCovers() {
+        assertThat(repository.covers(DateInterval.of(START, END))).isTrue();
+        assertThat(repository.covers(DateInterval.of(START.plusHours(10), END))).isFalse();
+        assertThat(repository.covers(DateInterval.of(START, END.minusHours(12)))).isFalse();
+        assertThat(repository.covers(DateInterval.of(LocalDateTime.now().toLocalDate().atStartOfDay(),
+                LocalDateTime.now().plusMinutes(1)))).isTrue();
+    }
+
+    private void assertRollupsMatchResults() {
+        List<LabResultSummary> summaries = repository.findResultSummaries(ORG_UNIT_CODES,
+                DateInterval.of(START, END));
+
+        assertThat(summaries).extracting(DailyResultRollupRepositoryTest::toTuple)
+                .containsExactlyInAnyOrderElementsOf(aggregate(ORG_UNIT_CODES, START, END));
+    }
+
+    /**
+     * The summaries LabResultAggregator computes from the same rows.
+     */
+    private List<Tuple> aggregate(Set<String> orgUnitCodes, LocalDateTime start, LocalDateTime end) {
+        LabResultAggregator aggregator = new LabResultAggregator();
+        reportResultRepository.forEachReportResult(start, end, start, orgUnitCodes, result -> {
+            if (!result.getCreatedAt().isBefore(start)) {
+                aggregator.addReceived(result);
+            }
+        });
+        List<LabResultSummary> summaries = aggregator.getResultSummaries();
+        assertThat(summaries).isNotEmpty();
+        return Arrays.asList(summaries.stream().map(DailyResultRollupRepositoryTest::toTuple).toArray(Tuple[]::new));
+    }
+
+    private static Tuple toTuple(LabResultSummary summary) {
+        return new Tuple(summary.getRequestingProvinceName(), summary.getRequestingDistrictName(),
+                summary.getFacilityName(), summary.getHealthFacilityLabCode(), summary.getTypeOfResult(),
+                summary.getTotalReceived(), summary.getTotalPending(), summary.getProcessed(),
+                summary.getNotProcessedInvalidResult(), summary.getNotProcessedNidNotFount(),
+                summary.getNotProcessedDuplicateNid(), summary.getNotProcessedDuplicatedRequestId());
+    }
+
+    private void insert(String requestId, String orgUnitCode, String typeOfResult, String status, String cause,
+            LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO VlData VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", requestId,
+                "NID-" + requestId, "Maria", "Langa", "Zambezia", "Quelimane", "CS " + orgUnitCode, orgUnitCode,
+                createdAt, createdAt.plusHours(1), status, cause, typeOfResult, "ACTIVE");
+    }
+
+    private void update(String requestId, String status, String cause, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE VlData SET VIRAL_LOAD_STATUS = ?, NOT_PROCESSING_CAUSE = ?, UPDATED_AT = ? "
+                + "WHERE RequestId = ?", status, cause, updatedAt, requestId);
+    }
+}
@@ -0,0 +1,127 @@
+package disa.notification.service.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.entity.OrgUnit;
+import disa.notification.service.service.ReportMetrics;
+import disa.notification.service.service.interfaces.LabResultDataset;
+import disa.notification.service.utils.DateInterval;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LabResultDatasetRepositoryTest {
+
+    private static final DateInterval INTERVAL = DateInterval.of(LocalDateTime.of(2024, 3, 3, 0, 0),
+            LocalDateTime.of(2024, 3, 9, 23, 59, 59));
+
+    private JdbcTemplate jdbcTemplate;
+    private ReportResultRepository reportResultRepository;
+    private LabResultDatasetRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        // Compares text ignoring case, as the MySQL collations do
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:labResultDatasets;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE VlData (RequestId VARCHAR(50), UNIQUEID VARCHAR(50), "
+                + "FIRSTNAME VARCHAR(50), SURNAME VARCHAR(50), RequestingProvinceName VARCHAR(50), "
+                + "RequestingDistrictName VARCHAR(50), RequestingFacilityName VARCHAR(50), "
+                + "RequestingFacilityCode VARCHAR(50), CREATED_AT TIMESTAMP, UPDATED_AT TIMESTAMP, "
+                + "VIRAL_LOAD_STATUS VARCHAR(20), NOT_PROCESSING_CAUSE VARCHAR(50), TypeOfResult VARCHAR(20), "
+                + "ENTITY_STATUS VARCHAR(20))");
+        insert("R1", "HF-A", LocalDateTime.of(2024, 3, 4, 10, 0));
+        insert("R2", "hf-a", LocalDateTime.of(2024, 3, 5, 10, 0));
+        insert("R3", "HF-B", LocalDateTime.of(2024, 3, 6, 10, 0));
+
+        reportResultRepository = new ReportResultRepository(dataSource, 2);
+        repository = new LabResultDatasetRepository(reportResultRepository, Optional.empty(),
+                new ReportMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(repository, "pendingDays", 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testFindPartnerDatasetsMatchesCodesAsTheDatabase() {
+        ImplementingPartner partnerA = implementingPartner(1, "HF-A");
+        ImplementingPartner partnerB = implementingPartner(2, "hf-b");
+
+        Map<Integer, LabResultDataset> datasets = repository.findPartnerDatasets(Arrays.asList(partnerA, partnerB),
+                INTERVAL);
+
+        assertThat(receivedRequestIds(datasets.get(1))).containsExactlyInAnyOrder("R1", "R2");
+        assertThat(receivedRequestIds(datasets.get(2))).containsExactly("R3");
+        assertThat(datasets.get(1).getResultSummaries()).hasSize(2);
+    }
+
+    @Test
+    public void testIsEmptyBeforeReadingTheResults() {
+        assertThat(repository.findPartnerDataset(implementingPartner(1, "HF-A"), INTERVAL).isEmpty()).isFalse();
+        assertThat(repository.findPartnerDataset(implementingPartner(3, "HF-C"), INTERVAL).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testReadsRollupSummariesOnce() {
+        DailyResultRollupRepository rollupRepository = mock(DailyResultRollupRepository.class);
+        when(rollupRepository.covers(INTERVAL)).thenReturn(true);
+        when(rollupRepository.findResultSummaries(any(), eq(INTERVAL))).thenReturn(new ArrayList<>());
+        repository = new LabResultDatasetRepository(reportResultRepository, Optional.of(rollupRepository),
+                new ReportMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(repository, "pendingDays", 2);
+        LabResultDataset dataset = repository.findPartnerDataset(implementingPartner(1, "HF-A"), INTERVAL);
+
+        dataset.getResultSummaries();
+        dataset.getResultSummaries();
+
+        verify(rollupRepository, times(1)).findResultSummaries(any(), eq(INTERVAL));
+    }
+
+    private List<String> receivedRequestIds(LabResultDataset dataset) {
+        List<String> requestIds = new ArrayList<>();
+        dataset.forEachResult(result -> requestIds.add(result.getRequestId()), result -> {
+        });
+        return requestIds;
+    }
+
+    private ImplementingPartner implementingPartner(int id, String orgUnitCode) {
+        OrgUnit orgUnit = new OrgUnit();
+        orgUnit.setCode(orgUnitCode);
+        orgUnit.setImplementingPartnerId(id);
+        ImplementingPartner implementingPartner = new ImplementingPartner();
+        implementingPartner.setId(id);
+        implementingPartner.setOrgName("IP" + id);
+        implementingPartner.setOrgUnits(new HashSet<>(Arrays.asList(orgUnit)));
+        return implementingPartner;
+    }
+
+    private void insert(String requestId, String orgUnitCode, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO VlData VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", requestId,
+                "NID-" + requestId, "Maria", "Langa", "Zambezia", "Quelimane", "CS " + orgUnitCode, orgUnitCode,
+                createdAt, createdAt.plusHours(1), "PROCESSED", null, "HIVVL", "ACTIVE");
+    }
+}
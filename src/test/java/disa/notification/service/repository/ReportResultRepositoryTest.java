@@ -0,0 +1,125 @@
+package disa.notification.service.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.ReportFingerprint;
+
+public class ReportResultRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 3, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 9, 23, 59, 59);
+    private static final LocalDateTime PENDING_CUTOFF = LocalDateTime.of(2024, 3, 8, 0, 0);
+    private static final Set<String> ORG_UNIT_CODES = new HashSet<>(Arrays.asList("1040107", "1040108"));
+
+    private JdbcTemplate jdbcTemplate;
+    private ReportResultRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:reportResults;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE VlData (RequestId VARCHAR(50), UNIQUEID VARCHAR(50), "
+                + "FIRSTNAME VARCHAR(50), SURNAME VARCHAR(50), RequestingProvinceName VARCHAR(50), "
+                + "RequestingDistrictName VARCHAR(50), RequestingFacilityName VARCHAR(50), "
+                + "RequestingFacilityCode VARCHAR(50), CREATED_AT TIMESTAMP, UPDATED_AT TIMESTAMP, "
+                + "VIRAL_LOAD_STATUS VARCHAR(20), NOT_PROCESSING_CAUSE VARCHAR(50), TypeOfResult VARCHAR(20), "
+                + "ENTITY_STATUS VARCHAR(20))");
+        insert("R1", "1040107", "PROCESSED", null, LocalDateTime.of(2024, 3, 4, 10, 0), "ACTIVE");
+        insert("R2", "1040107", "NOT_PROCESSED", "NID_NOT_FOUND", LocalDateTime.of(2024, 3, 5, 10, 0), "ACTIVE");
+        insert("R3", "1040108", "PENDING", null, LocalDateTime.of(2024, 2, 20, 10, 0), "ACTIVE");
+        insert("R4", "1040108", "PROCESSED", null, LocalDateTime.of(2024, 2, 20, 10, 0), "ACTIVE");
+        insert("R5", "1040107", "PROCESSED", null, LocalDateTime.of(2024, 3, 4, 10, 0), "INACTIVE");
+        insert("R6", "1040109", "PROCESSED", null, LocalDateTime.of(2024, 3, 4, 10, 0), "ACTIVE");
+        repository = new ReportResultRepository(dataSource, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE VlData");
+    }
+
+    @Test
+    public void testForEachReportResult() {
+        List<LabResults> results = new ArrayList<>();
+
+        long rows = repository.forEachReportResult(START, END, PENDING_CUTOFF, ORG_UNIT_CODES, results::add);
+
+        assertThat(rows).isEqualTo(3);
+        assertThat(results).extracting(LabResults::getRequestId).containsExactlyInAnyOrder("R1", "R2", "R3");
+        LabResults result = results.stream().filter(r -> r.getRequestId().equals("R2")).findFirst().get();
+        assertThat(result.getNID()).isEqualTo("NID-R2");
+        assertThat(result.getFirstName()).isEqualTo("Maria");
+        assertThat(result.getLastName()).isEqualTo("Langa");
+        assertThat(result.getRequestingProvinceName()).isEqualTo("Zambezia");
+        assertThat(result.getRequestingDistrictName()).isEqualTo("Quelimane");
+        assertThat(result.getRequestingFacilityName()).isEqualTo("CS 1040107");
+        assertThat(result.getHealthFacilityLabCode()).isEqualTo("1040107");
+        assertThat(result.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 5, 10, 0));
+        assertThat(result.getUpdatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 5, 11, 0));
+        assertThat(result.getViralLoadStatus()).isEqualTo("NOT_PROCESSED");
+        assertThat(result.getNotProcessingCause()).isEqualTo("NID_NOT_FOUND");
+        assertThat(result.getTypeOfResult()).isEqualTo("HIVVL");
+    }
+
+    @Test
+    public void testForEachReportResultReadsPendingResultsOnce() {
+        // Pending in the interval before the cutoff, matched by both branches
+        insert("R7", "1040107", "PENDING", null, LocalDateTime.of(2024, 3, 6, 10, 0), "ACTIVE");
+        // Pending after the cutoff
+        insert("R8", "1040107", "PENDING", null, LocalDateTime.of(2024, 3, 9, 10, 0), "ACTIVE");
+        insert("R9", "1040108", null, null, LocalDateTime.of(2024, 3, 6, 10, 0), "ACTIVE");
+        List<LabResults> results = new ArrayList<>();
+
+        repository.forEachReportResult(START, END, PENDING_CUTOFF, ORG_UNIT_CODES, results::add);
+        ReportFingerprint fingerprint = repository.findReportFingerprint(START, END, PENDING_CUTOFF, ORG_UNIT_CODES);
+
+        assertThat(results).extracting(LabResults::getRequestId).containsExactlyInAnyOrder("R1", "R2", "R3", "R7",
+                "R8", "R9");
+        assertThat(fingerprint.getResultCount()).isEqualTo(6);
+        assertThat(fingerprint.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindLastSyncDates() {
+        List<HealthFacilityLastSync> lastSyncDates = repository.findLastSyncDates(ORG_UNIT_CODES);
+
+        assertThat(lastSyncDates).extracting(HealthFacilityLastSync::getHealthFacilityLabCode,
+                HealthFacilityLastSync::getLastSyncDate).containsExactlyInAnyOrder(
+                        tuple("1040107", LocalDateTime.of(2024, 3, 5, 11, 0)),
+                        tuple("1040108", LocalDateTime.of(2024, 2, 20, 11, 0)));
+    }
+
+    @Test
+    public void testFindReportFingerprint() {
+        ReportFingerprint fingerprint = repository.findReportFingerprint(START, END, PENDING_CUTOFF, ORG_UNIT_CODES);
+
+        assertThat(fingerprint.getResultCount()).isEqualTo(3);
+        assertThat(fingerprint.getPendingCount()).isEqualTo(1);
+        assertThat(fingerprint.getLastCreatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 5, 10, 0));
+        assertThat(fingerprint.getLastUpdatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 5, 11, 0));
+    }
+
+    private void insert(String requestId, String orgUnitCode, String status, String cause, LocalDateTime createdAt,
+            String entityStatus) {
+        jdbcTemplate.update("INSERT INTO VlData VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", requestId,
+                "NID-" + requestId, "Maria", "Langa", "Zambezia", "Quelimane", "CS " + orgUnitCode, orgUnitCode,
+                createdAt, createdAt.plusHours(1), status, cause, "HIVVL", entityStatus);
+    }
+}
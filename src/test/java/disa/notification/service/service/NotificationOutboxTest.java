@@ -0,0 +1,88 @@
+package disa.notification.service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import disa.notification.service.model.EmailDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class NotificationOutboxTest {
+
+    private static final String NOTIFIER_URL = "http://notifier.test/send";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private MockRestServiceServer server;
+    private NotificationOutbox outbox;
+    private Path directory;
+
+    @BeforeEach
+    public void setUp(@TempDir Path tempDir) {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        outbox = new NotificationOutbox(restTemplate, new ReportMetrics(registry));
+        directory = tempDir.resolve("outbox");
+        ReflectionTestUtils.setField(outbox, "disaNotifierEndPoint", NOTIFIER_URL);
+        ReflectionTestUtils.setField(outbox, "directory", directory.toString());
+        ReflectionTestUtils.setField(outbox, "batchSize", 20);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 2);
+        ReflectionTestUtils.setField(outbox, "initialBackoffMs", 0L);
+        ReflectionTestUtils.setField(outbox, "maxBackoffMs", 0L);
+    }
+
+    @Test
+    public void testSentEmailIsRemoved() {
+        server.expect(once(), requestTo(NOTIFIER_URL))
+                .andExpect(header("Idempotency-Key", "1_03-03-2024_09-03-2024"))
+                .andRespond(withSuccess());
+
+        outbox.send("ECHO", "1_03-03-2024_09-03-2024", new EmailDTO(), "report.xlsx");
+
+        server.verify();
+        assertThat(outbox.getPendingCount()).isZero();
+        assertThat(registry.get("disa.notifier.request").tags("partner", "ECHO", "status", "200").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testFailedEmailIsRetriedUntilSent() {
+        server.expect(once(), requestTo(NOTIFIER_URL)).andRespond(withServerError());
+        server.expect(once(), requestTo(NOTIFIER_URL)).andRespond(withSuccess());
+
+        outbox.send("ECHO", "1_03-03-2024_09-03-2024", new EmailDTO(), "report.xlsx");
+        assertThat(outbox.getPendingCount()).isEqualTo(1);
+
+        outbox.dispatchPending();
+
+        server.verify();
+        assertThat(outbox.getPendingCount()).isZero();
+        // The partner is read back from the journaled entry
+        assertThat(registry.get("disa.notifier.request").tags("partner", "ECHO", "status", "200").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testEmailIsMovedToFailedAfterMaxAttempts() {
+        server.expect(once(), requestTo(NOTIFIER_URL)).andRespond(withServerError());
+        server.expect(once(), requestTo(NOTIFIER_URL)).andRespond(withServerError());
+
+        outbox.send("ECHO", "1_03-03-2024_09-03-2024", new EmailDTO(), "report.xlsx");
+        outbox.dispatchPending();
+
+        assertThat(outbox.getPendingCount()).isZero();
+        assertThat(Files.exists(directory.resolve("failed").resolve("1_03-03-2024_09-03-2024.json"))).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+package disa.notification.service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.utils.FileReportOutput;
+
+public class ReportCacheTest {
+
+    private final ImplementingPartner ip = new ImplementingPartner();
+    private ReportCache reportCache;
+    private FileReportOutput report;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ip.setId(1);
+        ip.setOrgName("ECHO");
+        reportCache = new ReportCache(true, tempDir.resolve("report-cache").toString(), 60);
+        report = new FileReportOutput(tempDir.resolve("temp").resolve("report.xlsx"));
+        Files.createDirectories(report.getPath().getParent());
+        Files.write(report.getPath(), new byte[] { 1, 2, 3 });
+    }
+
+    @Test
+    public void testFindsReportOfSameResults() throws IOException {
+        String fingerprint = reportCache.getFingerprint(ip, report, "results");
+        reportCache.store(fingerprint, report);
+        report.delete();
+
+        Optional<FileReportOutput> cached = reportCache.find(reportCache.getFingerprint(ip, report, "results"),
+                report);
+
+        assertThat(cached).hasValueSatisfying(found -> assertThat(found.getPath()).isEqualTo(report.getPath()));
+        assertThat(Files.readAllBytes(report.getPath())).containsExactly(1, 2, 3);
+        assertThat(reportCache.find(reportCache.getFingerprint(ip, report, "changed results"), report)).isEmpty();
+    }
+
+    @Test
+    public void testKeepsReportsOfEachMailServiceApart() throws IOException {
+        reportCache.store(reportCache.getFingerprint(ip, report, "results"), report);
+        FileReportOutput otherReport = new FileReportOutput(tempDir.resolve("other").resolve("report.xlsx"));
+        FileReportOutput renamedReport = new FileReportOutput(tempDir.resolve("renamed.xlsx"));
+
+        Optional<FileReportOutput> cached = reportCache.find(reportCache.getFingerprint(ip, otherReport, "results"),
+                otherReport);
+
+        // Copied to the output asked for, whatever the path it was stored from
+        assertThat(cached).hasValueSatisfying(found -> assertThat(found.getPath()).isEqualTo(otherReport.getPath()));
+        assertThat(Files.readAllBytes(otherReport.getPath())).containsExactly(1, 2, 3);
+        assertThat(reportCache.contains(reportCache.getFingerprint(ip, renamedReport, "results"))).isFalse();
+    }
+
+    @Test
+    public void testSkipsUploadOfSameContent() throws IOException {
+        assertThat(reportCache.isUploaded("repo", report)).isFalse();
+        reportCache.markUploaded("repo", report);
+
+        assertThat(reportCache.isUploaded("repo", report)).isTrue();
+        assertThat(reportCache.isUploaded("other", report)).isFalse();
+        Files.write(report.getPath(), new byte[] { 4 });
+        assertThat(reportCache.isUploaded("repo", report)).isFalse();
+    }
+
+    @Test
+    public void testDeletesExpiredReports() {
+        String fingerprint = reportCache.getFingerprint(ip, report, "results");
+        reportCache.store(fingerprint, report);
+
+        new ReportCache(true, tempDir.resolve("report-cache").toString(), -1).deleteExpired();
+
+        assertThat(reportCache.contains(fingerprint)).isFalse();
+    }
+}
@@ -0,0 +1,149 @@
+package disa.notification.service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.service.interfaces.MailService;
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.FileReportOutput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ReportPipelineTest {
+
+    private static final DateInterval INTERVAL = DateInterval.of(LocalDateTime.of(2024, 3, 3, 0, 0),
+            LocalDateTime.of(2024, 3, 9, 23, 59, 59));
+
+    private final ImplementingPartner ip = new ImplementingPartner();
+    private final FileReportOutput report = new FileReportOutput(Paths.get("report.xlsx"));
+    private MailService mailService;
+    private ThreadPoolTaskExecutor[] executors;
+    private SimpleMeterRegistry registry;
+    private ReportPipeline pipeline;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        ip.setId(1);
+        ip.setOrgName("ECHO");
+        ip.setRepoId("repo");
+        mailService = mock(MailService.class);
+        executors = new ThreadPoolTaskExecutor[] { executor(), executor(), executor() };
+        registry = new SimpleMeterRegistry();
+        pipeline = pipeline("javaMail", false);
+    }
+
+    private ReportPipeline pipeline(String mailServiceName, boolean checkpointsIgnored) {
+        return new ReportPipeline(mailService,
+                new ReportCheckpointStore(tempDir.resolve("checkpoints").toString(), mailServiceName, 30,
+                        checkpointsIgnored),
+                new ReportCache(false, tempDir.resolve("report-cache").toString(), 60),
+                new ReportMetrics(registry), executors[0], executors[1],
+                executors[2]);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (ThreadPoolTaskExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testUploadsAndNotifiesGeneratedReport() throws Exception {
+        pipeline.submit(ip, INTERVAL, () -> Optional.of(report)).get();
+
+        InOrder inOrder = inOrder(mailService);
+        inOrder.verify(mailService).uploadReport(ip, report);
+        inOrder.verify(mailService).sendReportEmail(ip, INTERVAL, report);
+        assertThat(pipeline.getStages()).allMatch(stage -> stage.getCompleted() == 1);
+        assertThat(registry.get("disa.report.stage").tags("stage", "upload", "partner", "ECHO", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSendsNoResultsEmailWithoutUploading() throws Exception {
+        pipeline.submit(ip, INTERVAL, Optional::empty).get();
+
+        verify(mailService, never()).uploadReport(any(), any());
+        verify(mailService).sendNoResultsEmail(ip, INTERVAL);
+    }
+
+    @Test
+    public void testDoesNotNotifyWhenUploadFails() throws Exception {
+        doThrow(new SeafileServiceException("down")).when(mailService).uploadReport(ip, report);
+
+        assertThatThrownBy(() -> pipeline.submit(ip, INTERVAL, () -> Optional.of(report)).get())
+                .isInstanceOf(ExecutionException.class);
+
+        verify(mailService, never()).sendReportEmail(any(), any(), any());
+        assertThat(pipeline.getStages().get(1).getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    public void testResumesFromFirstUnfinishedStage() throws Exception {
+        FileReportOutput generated = new FileReportOutput(tempDir.resolve("generated.xlsx"));
+        Files.write(generated.getPath(), new byte[] { 1 });
+        doThrow(new SeafileServiceException("down")).doNothing().when(mailService).uploadReport(any(), any());
+
+        assertThatThrownBy(() -> pipeline.submit(ip, INTERVAL, () -> Optional.of(generated)).get())
+                .isInstanceOf(ExecutionException.class);
+        pipeline.submit(ip, INTERVAL, () -> {
+            throw new IllegalStateException("The report must be reused");
+        }).get();
+        pipeline.submit(ip, INTERVAL, () -> {
+            throw new IllegalStateException("The report was already delivered");
+        }).get();
+
+        verify(mailService, times(2)).uploadReport(any(), any());
+        verify(mailService, times(1)).sendReportEmail(any(), any(), any());
+    }
+
+    @Test
+    public void testDeliversAgainAfterReportsWrittenToDisk() throws Exception {
+        pipeline("fileSystem", false).submit(ip, INTERVAL, () -> Optional.of(report)).get();
+        pipeline.submit(ip, INTERVAL, () -> Optional.of(report)).get();
+
+        verify(mailService, times(2)).sendReportEmail(ip, INTERVAL, report);
+    }
+
+    @Test
+    public void testDeliversAgainWhenCheckpointsAreIgnored() throws Exception {
+        pipeline.submit(ip, INTERVAL, () -> Optional.of(report)).get();
+        pipeline("javaMail", true).submit(ip, INTERVAL, () -> Optional.of(report)).get();
+
+        verify(mailService, times(2)).uploadReport(ip, report);
+        verify(mailService, times(2)).sendReportEmail(ip, INTERVAL, report);
+    }
+
+    private ThreadPoolTaskExecutor executor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.initialize();
+        return executor;
+    }
+}
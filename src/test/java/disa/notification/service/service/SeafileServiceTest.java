@@ -0,0 +1,93 @@
+package disa.notification.service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestTemplate;
+
+import disa.notification.service.utils.FileReportOutput;
+
+public class SeafileServiceTest {
+
+    private static final String SEAFILE_URL = "http://seafile.test";
+    private static final String UPLOAD_LINK = "http://seafile.test/upload-api/abc";
+
+    private MockRestServiceServer server;
+    private SeafileService seafileService;
+    private FileReportOutput attachment;
+
+    @BeforeEach
+    public void setUp(@TempDir Path tempDir) throws IOException {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        seafileService = new SeafileService(restTemplate);
+        ReflectionTestUtils.setField(seafileService, "seafileUrl", SEAFILE_URL);
+        ReflectionTestUtils.setField(seafileService, "userName", "user");
+        ReflectionTestUtils.setField(seafileService, "password", "secret");
+        ReflectionTestUtils.setField(seafileService, "uploadLinkTtlSeconds", 1800L);
+
+        Path report = tempDir.resolve("report.xlsx");
+        Files.write(report, new byte[] { 1, 2, 3 });
+        attachment = new FileReportOutput(report);
+    }
+
+    @Test
+    public void testUploadsReuseTokenAndUploadLink() throws Exception {
+        expectLogin("token1");
+        server.expect(once(), requestTo(SEAFILE_URL + "/api2/repos/repo/upload-link/?p=/"))
+                .andExpect(header("authorization", "Token token1"))
+                .andRespond(withSuccess("\"" + UPLOAD_LINK + "\"", MediaType.APPLICATION_JSON));
+        expectUpload("token1", withSuccess("[]", MediaType.APPLICATION_JSON));
+        expectUpload("token1", withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        seafileService.uploadFile("repo", attachment);
+        seafileService.uploadFile("repo", attachment);
+
+        server.verify();
+    }
+
+    @Test
+    public void testLogsInAgainWhenTokenIsRejected() throws Exception {
+        expectLogin("token1");
+        server.expect(once(), requestTo(SEAFILE_URL + "/api2/repos/repo/upload-link/?p=/"))
+                .andRespond(withSuccess("\"" + UPLOAD_LINK + "\"", MediaType.APPLICATION_JSON));
+        expectUpload("token1", withStatus(HttpStatus.UNAUTHORIZED));
+        expectLogin("token2");
+        expectUpload("token2", withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        assertThat(seafileService.uploadFile("repo", attachment)).isEqualTo("[]");
+
+        server.verify();
+    }
+
+    private void expectLogin(String token) {
+        server.expect(once(), requestTo(SEAFILE_URL + "/api2/auth-token/"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"token\": \"" + token + "\"}", MediaType.APPLICATION_JSON));
+    }
+
+    private void expectUpload(String token, ResponseCreator response) {
+        server.expect(once(), requestTo(UPLOAD_LINK + "?ret-json=1"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header("authorization", "Token " + token))
+                .andRespond(response);
+    }
+}
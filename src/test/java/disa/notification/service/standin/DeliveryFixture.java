@@ -0,0 +1,75 @@
+package disa.notification.service.standin;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import disa.notification.service.config.HttpClientConfig;
+import disa.notification.service.service.NotificationOutbox;
+import disa.notification.service.service.ReportMetrics;
+import disa.notification.service.service.SeafileService;
+import disa.notification.service.service.impl.MailServiceImpl;
+import disa.notification.service.utils.TemplateEngineUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The delivery half of the report pipeline, MailServiceImpl with the pooled
+ * HTTP client, Seafile and the notifier outbox, wired to the stand-in servers.
+ */
+public class DeliveryFixture implements AutoCloseable {
+
+    private final CloseableHttpClient httpClient;
+    private final ReportMetrics reportMetrics = new ReportMetrics(new SimpleMeterRegistry());
+    private final NotificationOutbox notificationOutbox;
+    private final MailServiceImpl mailService;
+
+    /**
+     * @param maxConnectionsPerHost pool size of the HTTP client, for each of the
+     *                              stand-ins
+     * @param outboxDirectory       where the emails not accepted by the notifier
+     *                              are kept
+     */
+    public DeliveryFixture(SeafileStandIn seafile, NotifierStandIn notifier, int maxConnectionsPerHost,
+            Path outboxDirectory) {
+        httpClient = new HttpClientConfig().httpClient(2 * maxConnectionsPerHost, maxConnectionsPerHost, 30000, 5000,
+                60000);
+        RestTemplate restTemplate = new HttpClientConfig().restTemplate(httpClient);
+
+        SeafileService seafileService = new SeafileService(restTemplate);
+        ReflectionTestUtils.setField(seafileService, "seafileUrl", seafile.getUrl());
+        ReflectionTestUtils.setField(seafileService, "userName", "user");
+        ReflectionTestUtils.setField(seafileService, "password", "secret");
+        ReflectionTestUtils.setField(seafileService, "uploadLinkTtlSeconds", 1800L);
+
+        notificationOutbox = new NotificationOutbox(restTemplate, reportMetrics);
+        ReflectionTestUtils.setField(notificationOutbox, "disaNotifierEndPoint", notifier.getSendUrl());
+        ReflectionTestUtils.setField(notificationOutbox, "directory", outboxDirectory.toString());
+        ReflectionTestUtils.setField(notificationOutbox, "batchSize", 20);
+        ReflectionTestUtils.setField(notificationOutbox, "maxAttempts", 10);
+        ReflectionTestUtils.setField(notificationOutbox, "initialBackoffMs", 0L);
+        ReflectionTestUtils.setField(notificationOutbox, "maxBackoffMs", 0L);
+
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        mailService = new MailServiceImpl(TemplateEngineUtils.getTemplateEngine(), messageSource, seafileService,
+                notificationOutbox, reportMetrics);
+    }
+
+    public MailServiceImpl getMailService() {
+        return mailService;
+    }
+
+    public NotificationOutbox getNotificationOutbox() {
+        return notificationOutbox;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,30 @@
+package disa.notification.service.standin;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the DISA notifier endpoint that sends the emails.
+ */
+public class NotifierStandIn extends StandInServer {
+
+    public static final String SEND_PATH = "/notification/send";
+
+    private final AtomicLong emails = new AtomicLong();
+
+    public NotifierStandIn(Conditions conditions) throws IOException {
+        super(conditions);
+        addEndpoint(SEND_PATH, (exchange, body) -> {
+            emails.incrementAndGet();
+            respond(exchange, 200, "{}");
+        });
+    }
+
+    public String getSendUrl() {
+        return getUrl() + SEND_PATH;
+    }
+
+    public long getEmails() {
+        return emails.get();
+    }
+}
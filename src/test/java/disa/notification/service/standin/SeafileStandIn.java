@@ -0,0 +1,45 @@
+package disa.notification.service.standin;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the Seafile endpoints used by SeafileService: auth-token,
+ * upload-link and the upload link itself.
+ */
+public class SeafileStandIn extends StandInServer {
+
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong uploadLinks = new AtomicLong();
+    private final AtomicLong uploads = new AtomicLong();
+
+    public SeafileStandIn(Conditions conditions) throws IOException {
+        super(conditions);
+        addEndpoint("/api2/auth-token/", (exchange, body) -> {
+            logins.incrementAndGet();
+            respond(exchange, 200, "{\"token\":\"" + UUID.randomUUID() + "\"}");
+        });
+        addEndpoint("/api2/repos/", (exchange, body) -> {
+            uploadLinks.incrementAndGet();
+            respond(exchange, 200, "\"" + getUrl() + "/upload-api/" + UUID.randomUUID() + "\"");
+        });
+        addEndpoint("/upload-api/", (exchange, body) -> {
+            uploads.incrementAndGet();
+            respond(exchange, 200, "[{\"name\":\"report.xlsx\",\"id\":\"" + UUID.randomUUID() + "\",\"size\":"
+                    + body.length + "}]");
+        });
+    }
+
+    public long getLogins() {
+        return logins.get();
+    }
+
+    public long getUploadLinks() {
+        return uploadLinks.get();
+    }
+
+    public long getUploads() {
+        return uploads.get();
+    }
+}
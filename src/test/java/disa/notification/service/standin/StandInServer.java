@@ -0,0 +1,199 @@
+package disa.notification.service.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server standing in for an external service, with the latency,
+ * bandwidth and errors of a WAN link applied to every request.
+ */
+public abstract class StandInServer implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Conditions conditions;
+    private final Random random;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    protected StandInServer(Conditions conditions) throws IOException {
+        this.conditions = conditions;
+        this.random = new Random(conditions.seed);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+    }
+
+    /**
+     * @param handler answers the request, its body is already read and throttled
+     */
+    protected void addEndpoint(String path, Handler handler) {
+        server.createContext(path, exchange -> {
+            try {
+                requests.incrementAndGet();
+                connections.add(exchange.getRemoteAddress());
+                sleep(conditions.latencyMs + (conditions.jitterMs > 0 ? nextInt((int) conditions.jitterMs + 1) : 0));
+                byte[] body = readBody(exchange.getRequestBody());
+                if (conditions.errorRate > 0 && nextDouble() < conditions.errorRate) {
+                    injectedErrors.incrementAndGet();
+                    respond(exchange, conditions.errorStatus, "{\"error\":\"injected\"}");
+                } else {
+                    handler.handle(exchange, body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    public StandInServer start() {
+        server.start();
+        return this;
+    }
+
+    public String getUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Connections opened by the clients, requests sent on a kept alive connection
+     * do not open a new one.
+     */
+    public int getConnections() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    protected static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the body no faster than the bandwidth cap.
+     */
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long startTime = System.nanoTime();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (conditions.bandwidthBytesPerSecond > 0) {
+                long expectedNanos = body.size() * TimeUnit.SECONDS.toNanos(1) / conditions.bandwidthBytesPerSecond;
+                sleep(TimeUnit.NANOSECONDS.toMillis(expectedNanos - (System.nanoTime() - startTime)));
+            }
+        }
+        bytesReceived.addAndGet(body.size());
+        return body.toByteArray();
+    }
+
+    private synchronized int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    protected interface Handler {
+        void handle(HttpExchange exchange, byte[] body) throws IOException;
+    }
+
+    /**
+     * The link between the service and the stand-in. A bandwidth of 0 is
+     * unlimited.
+     */
+    public static class Conditions {
+
+        private long latencyMs;
+        private long jitterMs;
+        private long bandwidthBytesPerSecond;
+        private double errorRate;
+        private int errorStatus = 500;
+        private long seed = 42;
+
+        public static Conditions local() {
+            return new Conditions();
+        }
+
+        public Conditions latency(long latencyMs, long jitterMs) {
+            this.latencyMs = latencyMs;
+            this.jitterMs = jitterMs;
+            return this;
+        }
+
+        public Conditions bandwidth(long bytesPerSecond) {
+            this.bandwidthBytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param errorRate fraction of the requests answered with the status
+         */
+        public Conditions errors(double errorRate, int errorStatus) {
+            this.errorRate = errorRate;
+            this.errorStatus = errorStatus;
+            return this;
+        }
+
+        public Conditions seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+}
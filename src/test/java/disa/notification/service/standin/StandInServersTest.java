@@ -0,0 +1,92 @@
+package disa.notification.service.standin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import disa.notification.service.entity.ImplementingPartner;
+import disa.notification.service.standin.StandInServer.Conditions;
+import disa.notification.service.utils.DateInterval;
+import disa.notification.service.utils.FileReportOutput;
+
+public class StandInServersTest {
+
+    private static final DateInterval INTERVAL = DateInterval.of(LocalDateTime.of(2024, 3, 3, 0, 0),
+            LocalDateTime.of(2024, 3, 9, 23, 59, 59));
+
+    private final ImplementingPartner ip = new ImplementingPartner();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        ip.setId(1);
+        ip.setOrgName("ECHO");
+        ip.setRepoId("repo");
+        ip.setRepoLink("https://seafile.example.org/repo");
+        ip.setMailList("echo@example.org");
+    }
+
+    @Test
+    public void testDeliversReportOverHttp() throws Exception {
+        try (SeafileStandIn seafile = new SeafileStandIn(Conditions.local());
+                NotifierStandIn notifier = new NotifierStandIn(Conditions.local());
+                DeliveryFixture delivery = start(seafile, notifier)) {
+            for (int i = 0; i < 3; i++) {
+                FileReportOutput report = report(1024);
+                delivery.getMailService().uploadReport(ip, report);
+                delivery.getMailService().sendReportEmail(ip, INTERVAL, report);
+            }
+
+            assertThat(seafile.getLogins()).isEqualTo(1);
+            assertThat(seafile.getUploadLinks()).isEqualTo(1);
+            assertThat(seafile.getUploads()).isEqualTo(3);
+            assertThat(notifier.getEmails()).isEqualTo(3);
+            assertThat(seafile.getConnections()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testKeepsEmailInOutboxWhenNotifierFails() throws Exception {
+        try (SeafileStandIn seafile = new SeafileStandIn(Conditions.local());
+                NotifierStandIn notifier = new NotifierStandIn(Conditions.local().errors(1, 503));
+                DeliveryFixture delivery = start(seafile, notifier)) {
+            delivery.getMailService().sendNoResultsEmail(ip, INTERVAL);
+
+            assertThat(notifier.getInjectedErrors()).isEqualTo(1);
+            assertThat(delivery.getNotificationOutbox().getPendingCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testThrottlesUploadToBandwidth() throws Exception {
+        try (SeafileStandIn seafile = new SeafileStandIn(Conditions.local().bandwidth(256 * 1024));
+                NotifierStandIn notifier = new NotifierStandIn(Conditions.local());
+                DeliveryFixture delivery = start(seafile, notifier)) {
+            long startTime = System.currentTimeMillis();
+            delivery.getMailService().uploadReport(ip, report(64 * 1024));
+
+            assertThat(System.currentTimeMillis() - startTime).isGreaterThanOrEqualTo(240);
+            assertThat(seafile.getBytesReceived()).isGreaterThan(64 * 1024);
+        }
+    }
+
+    private DeliveryFixture start(SeafileStandIn seafile, NotifierStandIn notifier) {
+        seafile.start();
+        notifier.start();
+        return new DeliveryFixture(seafile, notifier, 2, tempDir.resolve("outbox"));
+    }
+
+    private FileReportOutput report(int size) throws Exception {
+        FileReportOutput report = new FileReportOutput(tempDir.resolve("report.xlsx"));
+        Files.write(report.getPath(), new byte[size]);
+        return report;
+    }
+}
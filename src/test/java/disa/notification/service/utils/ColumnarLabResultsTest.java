@@ -0,0 +1,108 @@
+package disa.notification.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import disa.notification.service.enums.NotProcessingCause;
+import disa.notification.service.enums.ViralLoadStatus;
+import disa.notification.service.service.interfaces.LabResults;
+
+public class ColumnarLabResultsTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 4, 10, 0, 5);
+
+    @Test
+    public void testReadsBackEveryColumn() {
+        ColumnarLabResults results = new ColumnarLabResults();
+        LabResults result = LabResultsImpl.builder()
+                .requestId("REQ1")
+                .nID("0104010701/2024/00001")
+                .firstName("Maria")
+                .lastName("Langa")
+                .typeOfResult("HIVVL")
+                .requestingProvinceName("Zambézia")
+                .requestingDistrictName("Quelimane")
+                .healthFacilityLabCode("1040107")
+                .requestingFacilityName("CS 24 de Julho")
+                .viralLoadStatus("NOT_PROCESSED")
+                .notProcessingCause(" NID_NOT_FOUND ")
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT.plusHours(2))
+                .build();
+
+        LabResults row = results.get(results.add(result, true, false));
+
+        assertThat(row.getRequestId()).isEqualTo("REQ1");
+        assertThat(row.getNID()).isEqualTo("0104010701/2024/00001");
+        assertThat(row.getFirstName()).isEqualTo("Maria");
+        assertThat(row.getLastName()).isEqualTo("Langa");
+        assertThat(row.getTypeOfResult()).isEqualTo("HIVVL");
+        assertThat(row.getRequestingProvinceName()).isEqualTo("Zambézia");
+        assertThat(row.getRequestingDistrictName()).isEqualTo("Quelimane");
+        assertThat(row.getHealthFacilityLabCode()).isEqualTo("1040107");
+        assertThat(row.getRequestingFacilityName()).isEqualTo("CS 24 de Julho");
+        assertThat(row.getViralLoadStatusValue()).isEqualTo(ViralLoadStatus.NOT_PROCESSED);
+        assertThat(row.getViralLoadStatus()).isEqualTo("NOT_PROCESSED");
+        assertThat(row.getNotProcessingCauseValue()).isEqualTo(NotProcessingCause.NID_NOT_FOUND);
+        assertThat(row.getNotProcessingCause()).isEqualTo("NID_NOT_FOUND");
+        assertThat(row.getCreatedAt()).isEqualTo(CREATED_AT);
+        assertThat(row.getUpdatedAt()).isEqualTo(CREATED_AT.plusHours(2));
+    }
+
+    @Test
+    public void testKeepsNullsAndUnknownValues() {
+        ColumnarLabResults results = new ColumnarLabResults();
+        LabResults result = LabResultsImpl.builder()
+                .viralLoadStatus("CANCELLED")
+                .notProcessingCause("OTHER")
+                .build();
+
+        LabResults row = results.get(results.add(result, true, false));
+
+        assertThat(row.getRequestId()).isNull();
+        assertThat(row.getNID()).isNull();
+        assertThat(row.getRequestingProvinceName()).isNull();
+        assertThat(row.getCreatedAt()).isNull();
+        assertThat(row.getViralLoadStatusValue()).isNull();
+        assertThat(row.getViralLoadStatus()).isEqualTo("CANCELLED");
+        assertThat(row.getNotProcessingCauseValue()).isNull();
+        assertThat(row.getNotProcessingCause()).isEqualTo("OTHER");
+    }
+
+    @Test
+    public void testKeepsMoreUnknownValuesThanCodes() {
+        ColumnarLabResults results = new ColumnarLabResults();
+        for (int i = 0; i < 300; i++) {
+            results.add(LabResultsImpl.builder().viralLoadStatus("STATUS" + (i % 200)).build(), true, false);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            assertThat(results.get(i).getViralLoadStatus()).isEqualTo("STATUS" + (i % 200));
+            assertThat(results.get(i).getViralLoadStatusValue()).isNull();
+        }
+    }
+
+    @Test
+    public void testForEachReceivedAndPending() {
+        ColumnarLabResults results = new ColumnarLabResults();
+        for (int i = 0; i < 3000; i++) {
+            results.add(LabResultsImpl.builder().requestId("REQ" + i).nID(i % 2 == 0 ? null : "NID" + i).build(),
+                    i % 3 != 0, i % 3 != 1);
+        }
+
+        List<String> received = new ArrayList<>();
+        List<String> pending = new ArrayList<>();
+        results.forEachReceived(row -> received.add(row.getRequestId()));
+        results.forEachPending(row -> pending.add(row.getRequestId() + "=" + row.getNID()));
+
+        assertThat(results.size()).isEqualTo(3000);
+        assertThat(received).hasSize(2000).startsWith("REQ1", "REQ2", "REQ4").endsWith("REQ2999");
+        assertThat(pending).hasSize(2000).startsWith("REQ0=null", "REQ2=null", "REQ3=NID3")
+                .endsWith("REQ2999=NID2999");
+    }
+}
@@ -0,0 +1,85 @@
+package disa.notification.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import disa.notification.service.service.interfaces.HealthFacilityLastSync;
+import disa.notification.service.service.interfaces.LabResultSummary;
+import disa.notification.service.service.interfaces.LabResults;
+import disa.notification.service.service.interfaces.PendingHealthFacilitySummary;
+
+public class LabResultAggregatorTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 4, 10, 0);
+
+    @Test
+    public void testAddReceived() {
+        LabResultAggregator aggregator = new LabResultAggregator();
+
+        aggregator.addReceived(labResult("1040107", "HIVVL", "PROCESSED", null));
+        aggregator.addReceived(labResult("1040107", "HIVVL", "PENDING", null));
+        aggregator.addReceived(labResult("1040107", "HIVVL", "NOT_PROCESSED", "NID_NOT_FOUND"));
+        aggregator.addReceived(labResult("1040107", "HIVVL", "NOT_PROCESSED", "DUPLICATED_REQUEST_ID"));
+        aggregator.addReceived(labResult("1040107", "TB", "PROCESSED", null));
+        aggregator.addReceived(labResult("1040108", "HIVVL", "NOT_PROCESSED", "INVALID_RESULT"));
+
+        List<LabResultSummary> summaries = aggregator.getResultSummaries();
+
+        assertThat(summaries).hasSize(3);
+        LabResultSummary summary = summaries.get(0);
+        assertThat(summary.getHealthFacilityLabCode()).isEqualTo("1040107");
+        assertThat(summary.getTypeOfResult()).isEqualTo("HIVVL");
+        assertThat(summary.getTotalReceived()).isEqualTo(4);
+        assertThat(summary.getProcessed()).isEqualTo(1);
+        assertThat(summary.getTotalPending()).isEqualTo(1);
+        assertThat(summary.getNotProcessedNidNotFount()).isEqualTo(1);
+        assertThat(summary.getNotProcessedDuplicatedRequestId()).isEqualTo(1);
+        assertThat(summaries.get(2).getNotProcessedInvalidResult()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAddPending() {
+        LabResultAggregator aggregator = new LabResultAggregator();
+        LocalDateTime lastSync = LocalDateTime.of(2024, 3, 8, 12, 0);
+
+        aggregator.addPending(labResult("1040107", "HIVVL", "PENDING", null));
+        aggregator.addPending(labResult("1040107", "TB", "PENDING", null));
+        aggregator.addLastSync(new HealthFacilityLastSync() {
+            public String getRequestingDistrictName() {
+                return "Quelimane";
+            }
+
+            public String getHealthFacilityLabCode() {
+                return "1040107";
+            }
+
+            public LocalDateTime getLastSyncDate() {
+                return lastSync;
+            }
+        });
+
+        List<PendingHealthFacilitySummary> summaries = aggregator.getPendingHealthFacilitySummaries();
+
+        assertThat(aggregator.hasPendingResults()).isTrue();
+        assertThat(summaries).hasSize(1);
+        assertThat(summaries.get(0).getTotalPending()).isEqualTo(2);
+        assertThat(summaries.get(0).getLastSyncDate()).isEqualTo(lastSync);
+    }
+
+    private LabResults labResult(String facilityCode, String typeOfResult, String status, String cause) {
+        return LabResultsImpl.builder()
+                .requestingProvinceName("Zambezia")
+                .requestingDistrictName("Quelimane")
+                .healthFacilityLabCode(facilityCode)
+                .requestingFacilityName("CS " + facilityCode)
+                .typeOfResult(typeOfResult)
+                .viralLoadStatus(status)
+                .notProcessingCause(cause)
+                .createdAt(CREATED_AT)
+                .build();
+    }
+}
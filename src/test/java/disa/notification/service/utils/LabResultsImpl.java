@@ -0,0 +1,30 @@
+package disa.notification.service.utils;
+
+import java.time.LocalDateTime;
+
+import disa.notification.service.service.interfaces.LabResults;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class LabResultsImpl implements LabResults {
+    private String nID;
+    private String requestId;
+    private String firstName;
+    private String lastName;
+    private String healthFacilityLabCode;
+    private String typeOfResult;
+    private String requestingFacilityName;
+    private String viralLoadStatus;
+    private String notProcessingCause;
+    private LocalDateTime createdAt;
+    private String requestingProvinceName;
+    private String requestingDistrictName;
+    private LocalDateTime updatedAt;
+
+    @Override
+    public String getNID() {
+        return nID;
+    }
+}
@@ -0,0 +1,99 @@
+package disa.notification.service.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.core.io.ClassPathResource;
+
+import disa.notification.service.service.interfaces.LabResults;
+
+public class SyncReportTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 3, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 9, 23, 59, 59);
+
+    @Test
+    public void testWriteViralResultXLS(@TempDir Path tempDir) throws IOException {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        SyncReport syncReport = new SyncReport(messageSource, DateInterval.of(START, END));
+
+        List<LabResults> results = Arrays.asList(
+                labResult("1", "PROCESSED", null),
+                labResult("2", "PROCESSED", "NID_NOT_FOUND"),
+                labResult("3", "NOT_PROCESSED", "NID_NOT_FOUND"));
+
+        FileReportOutput output = new FileReportOutput(tempDir.resolve("report.xlsx"));
+        InMemoryLabResultDataset dataset = new InMemoryLabResultDataset();
+        results.forEach(result -> dataset.add(result, true, false));
+        syncReport.writeViralResultXLS(dataset, output);
+
+        try (InputStream in = Files.newInputStream(output.getPath()); XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+            Sheet byDistrict = workbook.getSheetAt(2);
+            assertThat(byDistrict.getRow(0).getCell(0).getStringCellValue()).contains("03-03-2024", "09-03-2024");
+            assertThat(byDistrict.getRow(2).getCell(0).getStringCellValue()).isEqualTo("Zambezia");
+            assertThat(byDistrict.getRow(2).getCell(3).getNumericCellValue()).isEqualTo(2);
+            assertThat(byDistrict.getRow(2).getCell(15).getNumericCellValue()).isEqualTo(3);
+            assertThat(byDistrict.getRow(3).getCell(0).getStringCellValue()).isEqualTo("Total");
+            assertThat(byDistrict.getLastRowNum()).isEqualTo(3);
+
+            Cell healthFacilityCode = workbook.getSheetAt(3).getRow(3).getCell(2);
+            assertThat(healthFacilityCode.getStringCellValue()).isEqualTo("1040107");
+            assertThat(healthFacilityCode.getCellStyle().getAlignmentEnum()).isEqualTo(HorizontalAlignment.CENTER);
+
+            Sheet byNid = workbook.getSheetAt(4);
+            assertThat(byNid.getLastRowNum()).isEqualTo(4);
+            assertThat(byNid.getRow(2).getCell(0).getStringCellValue()).isEqualTo("REQ1");
+            assertThat(byNid.getRow(2).getCell(9).getStringCellValue()).isEqualTo("PROCESSADO");
+            assertThat(byNid.getRow(3).getCell(11).getStringCellValue())
+                    .isEqualTo("Reprocessado apos a correcao do NID");
+            assertThat(byNid.getRow(4).getCell(10).getStringCellValue()).isEqualTo("NID inexistente no SESP");
+            // At least as wide as the headers of the template
+            assertThat(byNid.getColumnWidth(0)).isEqualTo(("ID da Requisição".length() + 1) * 256);
+            assertThat(byNid.getColumnWidth(2)).isEqualTo(22 * 256);
+            assertThat(byNid.getColumnWidth(8)).isEqualTo(("Data de Sincronização".length() + 1) * 256);
+            assertThat(byNid.getColumnWidth(11))
+                    .isEqualTo(("Reprocessado apos a correcao do NID".length() + 1) * 256);
+
+            assertThat(workbook.getSheetAt(6).getLastRowNum()).isEqualTo(1);
+            assertThat(workbook.getNumCellStyles()).isLessThanOrEqualTo(countTemplateCellStyles() + 5);
+        }
+    }
+
+    private int countTemplateCellStyles() throws IOException {
+        try (InputStream in = new ClassPathResource("templates/SyncReport.xlsx").getInputStream();
+                XSSFWorkbook template = new XSSFWorkbook(in)) {
+            return template.getNumCellStyles();
+        }
+    }
+
+    private LabResults labResult(String id, String status, String cause) {
+        return LabResultsImpl.builder()
+                .requestId("REQ" + id)
+                .nID("0104010701/2024/0000" + id)
+                .typeOfResult("HIVVL")
+                .requestingProvinceName("Zambezia")
+                .requestingDistrictName("Quelimane")
+                .healthFacilityLabCode("1040107")
+                .requestingFacilityName("CS 24 de Julho")
+                .viralLoadStatus(status)
+                .notProcessingCause(cause)
+                .createdAt(START.plusDays(1))
+                .build();
+    }
+}